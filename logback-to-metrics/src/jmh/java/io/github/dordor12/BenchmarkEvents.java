@@ -0,0 +1,68 @@
+package io.github.dordor12;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.Map;
+
+/**
+ * Shared factory helpers for building {@link LoggingEvent} objects in benchmarks.
+ */
+final class BenchmarkEvents {
+
+    private BenchmarkEvents() {
+    }
+
+    static LoggingEvent event(Logger log, Level level, String message, Map<String, String> mdc) {
+        LoggingEvent e = new LoggingEvent("benchmark", log, level, message, null, null);
+        e.setMDCPropertyMap(mdc);
+        return e;
+    }
+
+    static LoggingEvent eventWithArgs(Logger log, Level level, String message,
+                                      Map<String, String> mdc, Object... args) {
+        LoggingEvent e = event(log, level, message, mdc);
+        e.setArgumentArray(args);
+        return e;
+    }
+
+    static LoggingEvent eventWithMarker(Logger log, Level level, String message,
+                                        Map<String, String> mdc, org.slf4j.Marker marker) {
+        LoggingEvent e = event(log, level, message, mdc);
+        e.setMarker(marker);
+        return e;
+    }
+
+    static LoggingEvent eventWithMarkerAndArgs(Logger log, Level level, String message,
+                                               Map<String, String> mdc, org.slf4j.Marker marker,
+                                               Object... args) {
+        LoggingEvent e = event(log, level, message, mdc);
+        e.setMarker(marker);
+        if (args.length > 0) {
+            e.setArgumentArray(args);
+        }
+        return e;
+    }
+
+    /**
+     * Adds a fresh {@link SimpleMeterRegistry} to the global registry.
+     */
+    static SimpleMeterRegistry newGlobalRegistry() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        return registry;
+    }
+
+    /**
+     * Clears and detaches a registry created by {@link #newGlobalRegistry()}.
+     */
+    static void closeGlobalRegistry(SimpleMeterRegistry registry) {
+        if (registry == null) return;
+        registry.clear();
+        Metrics.removeRegistry(registry);
+        Metrics.globalRegistry.clear();
+    }
+}
@@ -0,0 +1,283 @@
+package io.github.dordor12;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for cardinality protection at scale.
+ * <p>
+ * Every iteration starts from an appender that already holds
+ * {@code templates * maxTagValueCardinality} counters (50k by default), all of them carrying a
+ * {@code userId} tag whose distinct-value count sits exactly at {@code maxTagValueCardinality}.
+ * The next unseen {@code userId} value pushes the key over the limit, which blacklists it and
+ * re-registers every existing counter without the tag.
+ * <p>
+ * {@code cardinalityStorm} runs that crossing while other threads append bursts to the same
+ * series. Both are {@link Mode#SingleShotTime} measurements on a freshly populated appender per
+ * iteration, so every sample contains exactly one crossing: {@code crossingAppend} is the
+ * crossing append itself under concurrent load, {@code concurrentBurst} the time each other
+ * thread needs for {@value #BURST_SIZE} appends started together with it, stalls included.
+ * {@code reRegistration} isolates the crossing append without concurrent load.
+ * <p>
+ * {@code appendDuringReRegistration} is the per-append view: a {@link Mode#SampleTime}
+ * distribution of single {@code append()} calls while a driver thread keeps crossing the limit
+ * on freshly populated appenders. Its p99.9 and max are the stalls logging threads see while
+ * blacklisting and re-registration run.
+ * <p>
+ * Run with: ./gradlew :logback-to-metrics:jmh
+ */
+@Fork(1)
+public class CardinalityStormBenchmark {
+
+    private static final int MAX_TAG_VALUE_CARDINALITY = 100;
+    private static final int HOT_EVENT_POOL_SIZE = 64;
+    static final int BURST_SIZE = 100_000;
+
+    /**
+     * Builds an appender pre-populated with {@code templates * MAX_TAG_VALUE_CARDINALITY} counters.
+     */
+    static LogbackToMetricsAppender populatedAppender(LoggerContext loggerContext, Logger logger,
+                                                      int templates, boolean selfObservability) {
+        var appender = new LogbackToMetricsAppender();
+        appender.setEnableCardinalityProtection(true);
+        appender.setMaxTagValueCardinality(MAX_TAG_VALUE_CARDINALITY);
+        appender.setMaxCounters((long) templates * MAX_TAG_VALUE_CARDINALITY * 2);
+        appender.setEnableSelfObservability(selfObservability);
+        appender.setContext(loggerContext);
+        appender.start();
+
+        for (int t = 0; t < templates; t++) {
+            String message = "storm template " + t;
+            for (int v = 0; v < MAX_TAG_VALUE_CARDINALITY; v++) {
+                appender.append(BenchmarkEvents.event(logger, Level.INFO, message,
+                        Map.of("userId", "user_" + v, "endpoint", "/api/orders")));
+            }
+        }
+        return appender;
+    }
+
+    /**
+     * Shared state for the concurrent storm: one appender per iteration, shared by all threads
+     * of the group.
+     */
+    @State(Scope.Group)
+    public static class StormState {
+
+        @Param({"500"})
+        public int templates;
+
+        LogbackToMetricsAppender appender;
+        LoggingEvent[] hotEvents;
+        LoggingEvent crossingEvent;
+        SimpleMeterRegistry registry;
+        LoggerContext loggerContext;
+        Logger logger;
+
+        @Setup(org.openjdk.jmh.annotations.Level.Trial)
+        public void setupTrial() {
+            loggerContext = new LoggerContext();
+            logger = loggerContext.getLogger("com.example.StormService");
+
+            // Hot events reuse known userId values so they hit existing counters until the
+            // key is blacklisted, after which they re-key onto the untagged series
+            hotEvents = new LoggingEvent[HOT_EVENT_POOL_SIZE];
+            for (int i = 0; i < HOT_EVENT_POOL_SIZE; i++) {
+                hotEvents[i] = BenchmarkEvents.event(logger, Level.INFO, "storm template " + (i % templates),
+                        Map.of("userId", "user_" + (i % MAX_TAG_VALUE_CARDINALITY), "endpoint", "/api/orders"));
+            }
+            crossingEvent = BenchmarkEvents.event(logger, Level.INFO, "storm template 0",
+                    Map.of("userId", "user_overflow", "endpoint", "/api/orders"));
+        }
+
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void setupIteration() {
+            registry = BenchmarkEvents.newGlobalRegistry();
+            appender = populatedAppender(loggerContext, logger, templates, true);
+        }
+
+        @TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+        public void tearDownIteration() {
+            appender.stop();
+            BenchmarkEvents.closeGlobalRegistry(registry);
+        }
+    }
+
+    /**
+     * Per-invocation state for {@code reRegistration}: a freshly populated appender and the
+     * single event that pushes {@code userId} over the cardinality limit.
+     */
+    @State(Scope.Thread)
+    public static class CrossingState {
+
+        @Param({"10000", "50000"})
+        public int existingCounters;
+
+        LogbackToMetricsAppender appender;
+        LoggingEvent crossingEvent;
+        SimpleMeterRegistry registry;
+        LoggerContext loggerContext;
+        Logger logger;
+
+        @Setup(org.openjdk.jmh.annotations.Level.Trial)
+        public void setupTrial() {
+            loggerContext = new LoggerContext();
+            logger = loggerContext.getLogger("com.example.StormService");
+            crossingEvent = BenchmarkEvents.event(logger, Level.INFO, "storm template 0",
+                    Map.of("userId", "user_overflow", "endpoint", "/api/orders"));
+        }
+
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void setupIteration() {
+            registry = BenchmarkEvents.newGlobalRegistry();
+            appender = populatedAppender(loggerContext, logger,
+                    existingCounters / MAX_TAG_VALUE_CARDINALITY, false);
+        }
+
+        @TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+        public void tearDownIteration() {
+            appender.stop();
+            BenchmarkEvents.closeGlobalRegistry(registry);
+        }
+    }
+
+    /**
+     * State for {@code appendDuringReRegistration}: the appender the benchmark threads log to,
+     * and a driver thread that repeatedly swaps in a freshly populated appender and sends it
+     * the crossing event, so re-registration keeps running under the sampled appends.
+     */
+    @State(Scope.Benchmark)
+    public static class StallState {
+
+        @Param({"500"})
+        public int templates;
+
+        volatile LogbackToMetricsAppender appender;
+        volatile boolean running;
+        LoggingEvent[] hotEvents;
+        LoggingEvent crossingEvent;
+        SimpleMeterRegistry registry;
+        LoggerContext loggerContext;
+        Logger logger;
+        Thread driver;
+
+        @Setup(org.openjdk.jmh.annotations.Level.Trial)
+        public void setupTrial() {
+            loggerContext = new LoggerContext();
+            logger = loggerContext.getLogger("com.example.StormService");
+            hotEvents = new LoggingEvent[HOT_EVENT_POOL_SIZE];
+            for (int i = 0; i < HOT_EVENT_POOL_SIZE; i++) {
+                hotEvents[i] = BenchmarkEvents.event(logger, Level.INFO, "storm template " + (i % templates),
+                        Map.of("userId", "user_" + (i % MAX_TAG_VALUE_CARDINALITY), "endpoint", "/api/orders"));
+            }
+            crossingEvent = BenchmarkEvents.event(logger, Level.INFO, "storm template 0",
+                    Map.of("userId", "user_overflow", "endpoint", "/api/orders"));
+        }
+
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void setupIteration() {
+            registry = BenchmarkEvents.newGlobalRegistry();
+            appender = populatedAppender(loggerContext, logger, templates, false);
+            running = true;
+            driver = new Thread(this::drive, "cardinality-storm-driver");
+            driver.setDaemon(true);
+            driver.start();
+        }
+
+        private void drive() {
+            while (running) {
+                appender.append(crossingEvent);
+                if (!running) break;
+                // Benchmark threads keep logging to the blacklisted appender meanwhile
+                LogbackToMetricsAppender next = populatedAppender(loggerContext, logger, templates, false);
+                LogbackToMetricsAppender previous = appender;
+                appender = next;
+                previous.stop();
+            }
+        }
+
+        @TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+        public void tearDownIteration() throws InterruptedException {
+            running = false;
+            driver.join();
+            appender.stop();
+            BenchmarkEvents.closeGlobalRegistry(registry);
+        }
+    }
+
+    /**
+     * Per-thread position in the hot event pool.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    // --- Benchmarks ---
+
+    /**
+     * Storm thread: the append with a never-seen {@code userId} value that crosses
+     * {@code maxTagValueCardinality} and triggers re-registration of every existing counter.
+     */
+    @Benchmark
+    @Group("cardinalityStorm")
+    @GroupThreads(1)
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 30)
+    public void crossingAppend(StormState state) {
+        state.appender.append(state.crossingEvent);
+    }
+
+    /**
+     * Concurrent appenders hitting the pre-registered series while blacklisting and
+     * re-registration run underneath them.
+     */
+    @Benchmark
+    @Group("cardinalityStorm")
+    @GroupThreads(3)
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 30)
+    public void concurrentBurst(StormState state) {
+        LoggingEvent[] events = state.hotEvents;
+        for (int i = 0; i < BURST_SIZE; i++) {
+            state.appender.append(events[i & (HOT_EVENT_POOL_SIZE - 1)]);
+        }
+    }
+
+    /**
+     * The single append that crosses the cardinality limit, including the synchronous
+     * re-registration of {@code existingCounters} counters.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void reRegistration(CrossingState state) {
+        state.appender.append(state.crossingEvent);
+    }
+
+    /**
+     * A single append to the pre-registered series, sampled while the driver thread crosses the
+     * cardinality limit and re-registers every counter of the appender being logged to.
+     */
+    @Benchmark
+    @Threads(3)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 10, time = 2)
+    public void appendDuringReRegistration(StallState state, Cursor cursor) {
+        state.appender.append(state.hotEvents[cursor.next++ & (HOT_EVENT_POOL_SIZE - 1)]);
+    }
+}
@@ -0,0 +1,204 @@
+package io.github.dordor12;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * JMH benchmarks for pod startup: thousands of distinct series registering at once from many
+ * threads against an empty appender and registry.
+ * <p>
+ * Every iteration is a single shot that starts from a fresh appender and a fresh
+ * {@link SimpleMeterRegistry}, so the score is the wall time of the whole burst:
+ * <ul>
+ *   <li>{@code timeToSteadyState} — time until {@code series} distinct series have been
+ *       registered by {@code threads} concurrent threads (each series logged exactly once)</li>
+ *   <li>{@code warmupWindow} — the same burst followed by {@code repeats} passes over the
+ *       now-registered series, i.e. the mixed cold/hot traffic right after a deploy. The
+ *       {@code eventsPerSecond} secondary result is the throughput over that window</li>
+ * </ul>
+ * Both report {@code retainedHeapBytes}: heap still in use after the burst, measured after a
+ * forced GC once the heap has settled and relative to the same measurement before the burst, so
+ * startup memory for the counter/histogram caches can be sized from the results. It is taken in
+ * the iteration teardown, outside the timed region.
+ * <p>
+ * Run with: ./gradlew :logback-to-metrics:jmh
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColdStartBenchmark {
+
+    @Param({"1000", "10000"})
+    public int series;
+
+    @Param({"8", "32"})
+    public int threads;
+
+    @Param({"10"})
+    public int repeats;
+
+    private LoggerContext loggerContext;
+    private ExecutorService executor;
+    private LoggingEvent[][] eventsPerThread;
+    private LogbackToMetricsAppender appender;
+    private SimpleMeterRegistry registry;
+    private long baselineHeapBytes;
+    private HeapCounters heapCounters;
+
+    /**
+     * Heap footprint reported alongside the primary score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HeapCounters {
+        public long retainedHeapBytes;
+        public double eventsPerSecond;
+    }
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setupTrial() {
+        loggerContext = new LoggerContext();
+        Logger[] loggers = {
+                loggerContext.getLogger("com.example.ApiController"),
+                loggerContext.getLogger("com.example.OrderService"),
+                loggerContext.getLogger("com.example.DatabaseRepo"),
+                loggerContext.getLogger("com.example.KafkaConsumer")
+        };
+
+        // Series are split across threads in contiguous blocks; every series gets its own template and
+        // a histogram-eligible numeric field so both caches are populated
+        eventsPerThread = new LoggingEvent[threads][];
+        int perThread = (series + threads - 1) / threads;
+        for (int t = 0; t < threads; t++) {
+            int count = Math.max(0, Math.min(perThread, series - t * perThread));
+            eventsPerThread[t] = new LoggingEvent[count];
+            for (int i = 0; i < count; i++) {
+                int id = t * perThread + i;
+                eventsPerThread[t][i] = BenchmarkEvents.eventWithArgs(loggers[id % loggers.length], Level.INFO,
+                        "startup series " + id,
+                        Map.of("endpoint", "/api/v" + (id % 5), "method", (id & 1) == 0 ? "GET" : "POST"),
+                        kv("duration_ms", id % 250));
+            }
+        }
+
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDownTrial() {
+        executor.shutdownNow();
+    }
+
+    @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+    public void setupIteration() {
+        registry = BenchmarkEvents.newGlobalRegistry();
+        appender = new LogbackToMetricsAppender();
+        appender.setEnableAutoHistograms(true);
+        appender.setMaxCounters((long) series * 2);
+        appender.setMaxHistograms((long) series * 2);
+        appender.setContext(loggerContext);
+        appender.start();
+
+        baselineHeapBytes = settledHeapBytes();
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+    public void tearDownIteration() {
+        // Aux counters are harvested after this teardown; the appender and registry are still live
+        if (heapCounters != null) {
+            heapCounters.retainedHeapBytes = Math.max(0, settledHeapBytes() - baselineHeapBytes);
+            heapCounters = null;
+        }
+        appender.stop();
+        BenchmarkEvents.closeGlobalRegistry(registry);
+    }
+
+    // --- Benchmarks ---
+
+    /**
+     * Time for {@code threads} threads to register {@code series} distinct series from empty.
+     */
+    @Benchmark
+    public LogbackToMetricsAppender timeToSteadyState(HeapCounters heap) throws InterruptedException {
+        long start = System.nanoTime();
+        burst(1);
+        recordHeap(heap, series, System.nanoTime() - start);
+        return appender;
+    }
+
+    /**
+     * Registration burst followed by {@code repeats} hot passes over the same series.
+     */
+    @Benchmark
+    public LogbackToMetricsAppender warmupWindow(HeapCounters heap) throws InterruptedException {
+        long start = System.nanoTime();
+        burst(1 + repeats);
+        recordHeap(heap, (long) series * (1 + repeats), System.nanoTime() - start);
+        return appender;
+    }
+
+    private void burst(int passes) throws InterruptedException {
+        CountDownLatch startLatch = new CountDownLatch(1);
+        CountDownLatch doneLatch = new CountDownLatch(threads);
+        for (LoggingEvent[] slice : eventsPerThread) {
+            executor.execute(() -> {
+                try {
+                    startLatch.await();
+                    for (int p = 0; p < passes; p++) {
+                        for (LoggingEvent e : slice) {
+                            appender.append(e);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    doneLatch.countDown();
+                }
+            });
+        }
+        startLatch.countDown();
+        doneLatch.await();
+    }
+
+    private void recordHeap(HeapCounters heap, long events, long elapsedNanos) {
+        heap.eventsPerSecond = events * 1_000_000_000.0 / Math.max(1, elapsedNanos);
+        heapCounters = heap;
+    }
+
+    /**
+     * Used heap after forced GCs, repeated until two readings agree within 1% so that
+     * concurrent collectors and finalization have settled.
+     */
+    private static long settledHeapBytes() {
+        long previous = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            if (Math.abs(previous - used) <= used / 100) return used;
+            previous = used;
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -100,89 +100,89 @@ public class LogbackToMetricsAppenderBenchmark {
         eventPool = new LoggingEvent[EVENT_POOL_SIZE];
 
         // 0: Simple MDC-only — API request
-        eventPool[0] = event(apiLogger, Level.INFO, "Request processed",
+        eventPool[0] = BenchmarkEvents.event(apiLogger, Level.INFO, "Request processed",
                 Map.of("endpoint", "/api/users", "method", "GET", "status", "200"));
 
         // 1: StructuredArguments kv — file upload
-        eventPool[1] = eventWithArgs(logger, Level.INFO, "File uploaded successfully",
+        eventPool[1] = BenchmarkEvents.eventWithArgs(logger, Level.INFO, "File uploaded successfully",
                 Map.of(), kv("file_size_bytes", 8192), kv("processing_time_ms", 47));
 
         // 2: LogstashMarker — region routing
         var regionMarker = Markers.append("region", "us-east-1").and(Markers.append("env", "prod"));
-        eventPool[2] = eventWithMarker(apiLogger, Level.INFO, "Request routed", Map.of(), regionMarker);
+        eventPool[2] = BenchmarkEvents.eventWithMarker(apiLogger, Level.INFO, "Request routed", Map.of(), regionMarker);
 
         // 3: MDC with numeric values — DB query
-        eventPool[3] = event(dbLogger, Level.INFO, "Query executed",
+        eventPool[3] = BenchmarkEvents.event(dbLogger, Level.INFO, "Query executed",
                 Map.of("query_duration_ms", "23", "rows_affected", "150", "table", "users"));
 
         // 4: High-cardinality MDC — unique request ID (bounded pool of 500 values)
-        eventPool[4] = event(apiLogger, Level.INFO, "Incoming request",
+        eventPool[4] = BenchmarkEvents.event(apiLogger, Level.INFO, "Incoming request",
                 Map.of("requestId", "req_00042", "endpoint", "/api/orders"));
 
         // 5: WARN level with error context
-        eventPool[5] = event(dbLogger, Level.WARN, "Slow query detected",
+        eventPool[5] = BenchmarkEvents.event(dbLogger, Level.WARN, "Slow query detected",
                 Map.of("query_duration_ms", "1523", "table", "orders", "threshold_ms", "1000"));
 
         // 6: Mixed MDC + StructuredArguments
-        eventPool[6] = eventWithArgs(logger, Level.INFO, "Payment processed",
+        eventPool[6] = BenchmarkEvents.eventWithArgs(logger, Level.INFO, "Payment processed",
                 Map.of("currency", "USD", "gateway", "stripe"),
                 kv("amount_cents", 4999), kv("retry_count", 0));
 
         // 7: Kafka consumer — offset tracking (numeric)
-        eventPool[7] = event(kafkaLogger, Level.INFO, "Message consumed",
+        eventPool[7] = BenchmarkEvents.event(kafkaLogger, Level.INFO, "Message consumed",
                 Map.of("topic", "user-events", "partition", "3", "offset", "892341", "consumer_group", "analytics"));
 
         // 8: MDC with non-numeric strings only
-        eventPool[8] = event(logger, Level.INFO, "User login successful",
+        eventPool[8] = BenchmarkEvents.event(logger, Level.INFO, "User login successful",
                 Map.of("auth_method", "oauth2", "provider", "google", "user_role", "admin"));
 
         // 9: StructuredArguments with string values (no histograms)
-        eventPool[9] = eventWithArgs(apiLogger, Level.INFO, "Cache lookup",
+        eventPool[9] = BenchmarkEvents.eventWithArgs(apiLogger, Level.INFO, "Cache lookup",
                 Map.of(), kv("cache_name", "user_sessions"), kv("result", "hit"));
 
         // 10: LogstashMarker chain — deployment context
         var deployMarker = Markers.append("version", "2.4.1")
                 .and(Markers.append("canary", "true"))
                 .and(Markers.append("dc", "us-west-2"));
-        eventPool[10] = eventWithMarker(logger, Level.INFO, "Service heartbeat", Map.of(), deployMarker);
+        eventPool[10] = BenchmarkEvents.eventWithMarker(logger, Level.INFO, "Service heartbeat", Map.of(), deployMarker);
 
         // 11: High-cardinality — traceId (unique per event)
-        eventPool[11] = event(apiLogger, Level.INFO, "Span completed",
+        eventPool[11] = BenchmarkEvents.event(apiLogger, Level.INFO, "Span completed",
                 Map.of("traceId", "abc123def456", "spanId", "span_001", "duration_ms", "89"));
 
         // 12: ERROR level — exception scenario
-        eventPool[12] = event(dbLogger, Level.ERROR, "Connection pool exhausted",
+        eventPool[12] = BenchmarkEvents.event(dbLogger, Level.ERROR, "Connection pool exhausted",
                 Map.of("pool_size", "50", "active_connections", "50", "wait_queue", "12"));
 
         // 13: Mixed marker + MDC + args — full combo
         var auditMarker = Markers.append("audit", "true");
-        eventPool[13] = eventWithMarkerAndArgs(logger, Level.INFO, "Data exported",
+        eventPool[13] = BenchmarkEvents.eventWithMarkerAndArgs(logger, Level.INFO, "Data exported",
                 Map.of("format", "csv", "rows", "10000"),
                 auditMarker, kv("export_duration_ms", 3400), kv("file_size_mb", 24));
 
         // 14: Simple no-MDC event
-        eventPool[14] = event(logger, Level.DEBUG, "Health check passed", Map.of());
+        eventPool[14] = BenchmarkEvents.event(logger, Level.DEBUG, "Health check passed", Map.of());
 
         // 15: Numeric-heavy MDC — system metrics
-        eventPool[15] = event(logger, Level.INFO, "System metrics collected",
+        eventPool[15] = BenchmarkEvents.event(logger, Level.INFO, "System metrics collected",
                 Map.of("cpu_percent", "67.5", "mem_used_mb", "3421", "gc_pause_ms", "12", "thread_count", "248"));
 
         // 16: StructuredArguments with double values
-        eventPool[16] = eventWithArgs(apiLogger, Level.INFO, "Response latency recorded",
+        eventPool[16] = BenchmarkEvents.eventWithArgs(apiLogger, Level.INFO, "Response latency recorded",
                 Map.of("endpoint", "/api/search"),
                 kv("p50_ms", 12.5), kv("p99_ms", 187.3));
 
         // 17: High-cardinality — session ID
-        eventPool[17] = event(apiLogger, Level.INFO, "Session validated",
+        eventPool[17] = BenchmarkEvents.event(apiLogger, Level.INFO, "Session validated",
                 Map.of("sessionId", "sess_9f8e7d6c", "user_role", "viewer"));
 
         // 18: Kafka producer — throughput stats
-        eventPool[18] = event(kafkaLogger, Level.INFO, "Batch sent",
+        eventPool[18] = BenchmarkEvents.event(kafkaLogger, Level.INFO, "Batch sent",
                 Map.of("topic", "click-events", "batch_size", "500", "send_time_ms", "34", "acks", "all"));
 
         // 19: LogstashMarker single field + MDC
         var featureMarker = Markers.append("feature_flag", "new_checkout");
-        eventPool[19] = eventWithMarker(logger, Level.INFO, "Feature gate evaluated",
+        eventPool[19] = BenchmarkEvents.eventWithMarker(logger, Level.INFO, "Feature gate evaluated",
                 Map.of("result", "enabled", "user_segment", "beta"), featureMarker);
 
         // Pre-warm all appenders with all events so hot path benchmarks hit cache
@@ -209,40 +209,6 @@ public class LogbackToMetricsAppenderBenchmark {
         coldPathCounter.set(0);
     }
 
-    // --- Event factory helpers ---
-
-    private LoggingEvent event(Logger log, Level level, String message, Map<String, String> mdc) {
-        LoggingEvent e = new LoggingEvent("benchmark", log, level, message, null, null);
-        e.setMDCPropertyMap(mdc);
-        return e;
-    }
-
-    private LoggingEvent eventWithArgs(Logger log, Level level, String message,
-                                       Map<String, String> mdc, Object... args) {
-        LoggingEvent e = new LoggingEvent("benchmark", log, level, message, null, null);
-        e.setMDCPropertyMap(mdc);
-        e.setArgumentArray(args);
-        return e;
-    }
-
-    private LoggingEvent eventWithMarker(Logger log, Level level, String message,
-                                         Map<String, String> mdc, org.slf4j.Marker marker) {
-        LoggingEvent e = new LoggingEvent("benchmark", log, level, message, null, null);
-        e.setMDCPropertyMap(mdc);
-        e.setMarker(marker);
-        return e;
-    }
-
-    private LoggingEvent eventWithMarkerAndArgs(Logger log, Level level, String message,
-                                                Map<String, String> mdc, org.slf4j.Marker marker,
-                                                Object... args) {
-        LoggingEvent e = new LoggingEvent("benchmark", log, level, message, null, null);
-        e.setMDCPropertyMap(mdc);
-        e.setMarker(marker);
-        e.setArgumentArray(args);
-        return e;
-    }
-
     // --- Benchmarks ---
 
     /**
@@ -307,7 +273,7 @@ public class LogbackToMetricsAppenderBenchmark {
      */
     @Benchmark
     public void coldPathRegistration() {
-        var e = event(logger, Level.INFO, "cold event " + coldPathCounter.getAndIncrement(), Map.of());
+        var e = BenchmarkEvents.event(logger, Level.INFO, "cold event " + coldPathCounter.getAndIncrement(), Map.of());
         appenderNoObservability.append(e);
     }
 }
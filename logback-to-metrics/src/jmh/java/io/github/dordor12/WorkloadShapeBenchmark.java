@@ -0,0 +1,143 @@
+package io.github.dordor12;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.logstash.logback.marker.LogstashMarker;
+import net.logstash.logback.marker.Markers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Parameterized JMH matrix over the event shapes that drive cost in {@code appendInternal}.
+ * <p>
+ * Each {@code @Param} is one dimension of a log shape; every run is also crossed with a
+ * {@code features} configuration so the cost of each optional feature can be read per shape:
+ * <ul>
+ *   <li>{@code mdcEntries} — string MDC entries per event</li>
+ *   <li>{@code structuredArgs} — {@code kv()} StructuredArguments per event</li>
+ *   <li>{@code markerChain} — number of {@code Markers.append()} markers chained with {@code and()}</li>
+ *   <li>{@code whitelistSize} — {@code kvWhitelist} entries ({@code 0} = no whitelist); the first
+ *       entries name MDC keys, the rest name keys the events never carry</li>
+ *   <li>{@code numericFields} — additional MDC entries with numeric values (histogram candidates)</li>
+ *   <li>{@code distinctTemplates} — distinct message templates the events rotate through</li>
+ *   <li>{@code features} — {@code baseline} (everything off), {@code observability},
+ *       {@code cardinality}, {@code histograms}, or {@code full} (all three)</li>
+ * </ul>
+ * All series are registered during setup, so the scores are steady-state hot path cost.
+ * <p>
+ * The defaults are one representative shape crossed with the feature configurations, so the
+ * regular (CI) benchmark run stays at five forks with stable, trackable series. Sweep the full
+ * matrix with JMH's {@code -p} option, e.g.
+ * {@code -p mdcEntries=4,16 -p structuredArgs=0,4 -p markerChain=0,4 -p whitelistSize=0,4
+ * -p numericFields=0,4 -p distinctTemplates=20,500}.
+ * <p>
+ * Run with: ./gradlew :logback-to-metrics:jmh
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkloadShapeBenchmark {
+
+    @Param({"8"})
+    public int mdcEntries;
+
+    @Param({"2"})
+    public int structuredArgs;
+
+    @Param({"2"})
+    public int markerChain;
+
+    @Param({"0"})
+    public int whitelistSize;
+
+    @Param({"2"})
+    public int numericFields;
+
+    @Param({"100"})
+    public int distinctTemplates;
+
+    @Param({"baseline", "observability", "cardinality", "histograms", "full"})
+    public String features;
+
+    private LogbackToMetricsAppender appender;
+    private SimpleMeterRegistry registry;
+    private LoggingEvent[] events;
+    private int eventIndex;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setup() {
+        registry = BenchmarkEvents.newGlobalRegistry();
+        LoggerContext loggerContext = new LoggerContext();
+        Logger logger = loggerContext.getLogger("com.example.ShapeService");
+
+        appender = new LogbackToMetricsAppender();
+        appender.setEnableSelfObservability(features.equals("observability") || features.equals("full"));
+        appender.setEnableCardinalityProtection(features.equals("cardinality") || features.equals("full"));
+        appender.setEnableAutoHistograms(features.equals("histograms") || features.equals("full"));
+        appender.setMaxCounters(1_000_000L);
+        appender.setMaxHistograms(1_000_000L);
+        for (int i = 0; i < whitelistSize; i++) {
+            appender.addKvWhitelist(i < mdcEntries ? "mdc_" + i : "absent_" + i);
+        }
+        appender.setContext(loggerContext);
+        appender.start();
+
+        // Tag values are fixed per event so every event maps to one stable series
+        events = new LoggingEvent[distinctTemplates];
+        for (int t = 0; t < distinctTemplates; t++) {
+            Map<String, String> mdc = new LinkedHashMap<>();
+            for (int i = 0; i < mdcEntries; i++) {
+                mdc.put("mdc_" + i, "value_" + i);
+            }
+            for (int i = 0; i < numericFields; i++) {
+                mdc.put("metric_" + i + "_ms", String.valueOf(17 * (i + 1)));
+            }
+
+            Object[] args = new Object[structuredArgs];
+            for (int i = 0; i < structuredArgs; i++) {
+                args[i] = kv("arg_" + i, "arg_value_" + i);
+            }
+
+            LogstashMarker marker = null;
+            for (int i = 0; i < markerChain; i++) {
+                LogstashMarker next = Markers.append("marker_" + i, "marker_value_" + i);
+                marker = (marker == null) ? next : marker.and(next);
+            }
+
+            events[t] = BenchmarkEvents.eventWithMarkerAndArgs(logger, Level.INFO,
+                    "shape template " + t + " processed", mdc, marker, args);
+        }
+
+        // Pre-register every series so the measurement is steady-state
+        for (LoggingEvent e : events) {
+            appender.append(e);
+        }
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        appender.stop();
+        BenchmarkEvents.closeGlobalRegistry(registry);
+    }
+
+    /**
+     * Round-robin over {@code distinctTemplates} pre-registered events.
+     */
+    @Benchmark
+    public void append() {
+        int i = eventIndex;
+        appender.append(events[i]);
+        eventIndex = (i + 1 == events.length) ? 0 : i + 1;
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.dordor12;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Maps plain positional arguments of one message template to tags and histogram values,
+ * configured in {@code logback.xml}:
+ * <pre>{@code
+ * <argumentMapping>
+ *     <template>Order {} processed in {} ms</template>
+ *     <tags>0=status</tags>
+ *     <histograms>1=duration_ms</histograms>
+ * </argumentMapping>
+ * }</pre>
+ * {@code tags} and {@code histograms} are comma-separated {@code position=key} pairs, with
+ * positions counted from {@code 0} in {@code getArgumentArray()}. The template must match the
+ * raw (unformatted) message exactly.
+ */
+@Getter
+@Setter
+public class ArgumentMapping {
+    private String template;
+    private String tags;
+    private String histograms;
+}
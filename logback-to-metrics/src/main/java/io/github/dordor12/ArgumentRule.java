@@ -0,0 +1,72 @@
+package io.github.dordor12;
+
+/**
+ * Compiled form of an {@link ArgumentMapping}: argument positions and the keys they map to,
+ * resolved once so that the hot path only indexes into the raw argument array.
+ */
+final class ArgumentRule {
+    final int[] tagPositions;
+    final String[] tagKeys;
+    final int[] histogramPositions;
+    final String[] histogramKeys;
+
+    private ArgumentRule(int[] tagPositions, String[] tagKeys, int[] histogramPositions, String[] histogramKeys) {
+        this.tagPositions = tagPositions;
+        this.tagKeys = tagKeys;
+        this.histogramPositions = histogramPositions;
+        this.histogramKeys = histogramKeys;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a {@code position=key} pair cannot be parsed
+     */
+    static ArgumentRule compile(ArgumentMapping mapping) {
+        String[] tags = split(mapping.getTags());
+        String[] histograms = split(mapping.getHistograms());
+        var tagPositions = new int[tags.length];
+        var tagKeys = new String[tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            tagPositions[i] = position(tags[i]);
+            tagKeys[i] = key(tags[i]);
+        }
+        var histogramPositions = new int[histograms.length];
+        var histogramKeys = new String[histograms.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histogramPositions[i] = position(histograms[i]);
+            histogramKeys[i] = key(histograms[i]);
+        }
+        return new ArgumentRule(tagPositions, tagKeys, histogramPositions, histogramKeys);
+    }
+
+    private static String[] split(String pairs) {
+        if (pairs == null || pairs.isBlank()) return new String[0];
+        String[] parts = pairs.split(",");
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = parts[i].trim();
+        }
+        return parts;
+    }
+
+    private static int position(String pair) {
+        int eq = pair.indexOf('=');
+        if (eq <= 0 || eq == pair.length() - 1) {
+            throw new IllegalArgumentException("Expected position=key but got '" + pair + "'");
+        }
+        int position = Integer.parseInt(pair.substring(0, eq).trim());
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative argument position in '" + pair + "'");
+        }
+        return position;
+    }
+
+    private static String key(String pair) {
+        return pair.substring(pair.indexOf('=') + 1).trim();
+    }
+
+    /**
+     * The argument at {@code position}, or {@code null} if the event has fewer arguments.
+     */
+    static Object argument(Object[] args, int position) {
+        return args != null && position < args.length ? args[position] : null;
+    }
+}
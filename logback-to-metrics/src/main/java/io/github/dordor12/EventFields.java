@@ -0,0 +1,205 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.Tag;
+import net.logstash.logback.argument.StructuredArguments;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per-thread scratch record of everything one event contributes, filled by a single pass over
+ * its MDC, arguments and markers and then read by counters, histograms, gauges and (through the
+ * materialized tags) cardinality tracking.
+ * <p>
+ * Tags are kept as key and raw value. The tag hash is folded in as tags are added, hashing
+ * strings, integral numbers and booleans as their rendered text without rendering them, so a
+ * hot-path event never builds a tag string; values are rendered only when {@link #tags()}
+ * materializes the list on the cold path. Numeric values are kept as primitive doubles in
+ * separate histogram and gauge sections.
+ * <p>
+ * Arrays grow on demand and are reused; {@link #clear()} drops the references of the event so
+ * an idle thread does not keep its values reachable.
+ */
+final class EventFields {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int TRUE_HASH = "true".hashCode();
+    private static final int FALSE_HASH = "false".hashCode();
+    private static final ThreadLocal<EventFields> CURRENT = ThreadLocal.withInitial(EventFields::new);
+
+    private int tagHash;
+    private String[] tagKeys = new String[INITIAL_CAPACITY];
+    private Object[] tagValues = new Object[INITIAL_CAPACITY];
+    private int tagCount;
+
+    private String[] histogramKeys = new String[INITIAL_CAPACITY];
+    private double[] histogramValues = new double[INITIAL_CAPACITY];
+    private int histogramCount;
+
+    private String[] gaugeKeys = new String[INITIAL_CAPACITY];
+    private double[] gaugeValues = new double[INITIAL_CAPACITY];
+    private int gaugeCount;
+
+    // Scratch result for parsing numeric text without boxing
+    final NumericParser.Result parsed = new NumericParser.Result();
+
+    // Scratch visitor for map marker entries, so iterating them allocates nothing
+    final LogbackToMetricsAppender.EntryVisitor entryVisitor = new LogbackToMetricsAppender.EntryVisitor();
+
+    // Materialized on first use, shared by every series registered for the event
+    private List<Tag> tags;
+
+    private EventFields() {
+    }
+
+    /**
+     * This thread's record, reset for a new event.
+     */
+    static EventFields begin() {
+        EventFields fields = CURRENT.get();
+        fields.clear();
+        return fields;
+    }
+
+    void addTag(String key, Object value) {
+        if (tagCount == tagKeys.length) {
+            tagKeys = Arrays.copyOf(tagKeys, tagCount * 2);
+            tagValues = Arrays.copyOf(tagValues, tagCount * 2);
+        }
+        tagKeys[tagCount] = key;
+        tagValues[tagCount++] = value;
+        tagHash = foldTag(tagHash, key, value);
+    }
+
+    void addHistogram(String key, double value) {
+        if (histogramCount == histogramKeys.length) {
+            histogramKeys = Arrays.copyOf(histogramKeys, histogramCount * 2);
+            histogramValues = Arrays.copyOf(histogramValues, histogramCount * 2);
+        }
+        histogramKeys[histogramCount] = key;
+        histogramValues[histogramCount++] = value;
+    }
+
+    void addGauge(String key, double value) {
+        if (gaugeCount == gaugeKeys.length) {
+            gaugeKeys = Arrays.copyOf(gaugeKeys, gaugeCount * 2);
+            gaugeValues = Arrays.copyOf(gaugeValues, gaugeCount * 2);
+        }
+        gaugeKeys[gaugeCount] = key;
+        gaugeValues[gaugeCount++] = value;
+    }
+
+    /**
+     * Hash of all tags added so far; equal tag lists give equal hashes.
+     */
+    int tagHash() {
+        return tagHash;
+    }
+
+    int tagCount() {
+        return tagCount;
+    }
+
+    String tagKey(int index) {
+        return tagKeys[index];
+    }
+
+    Object tagValue(int index) {
+        return tagValues[index];
+    }
+
+    int histogramCount() {
+        return histogramCount;
+    }
+
+    String histogramKey(int index) {
+        return histogramKeys[index];
+    }
+
+    double histogramValue(int index) {
+        return histogramValues[index];
+    }
+
+    int gaugeCount() {
+        return gaugeCount;
+    }
+
+    String gaugeKey(int index) {
+        return gaugeKeys[index];
+    }
+
+    double gaugeValue(int index) {
+        return gaugeValues[index];
+    }
+
+    /**
+     * Materializes the tags, rendering each value once per event. Cold path only.
+     */
+    List<Tag> tags() {
+        List<Tag> materialized = tags;
+        if (materialized == null) {
+            var list = new ArrayList<Tag>(tagCount);
+            for (int i = 0; i < tagCount; i++) {
+                list.add(Tag.of(tagKeys[i], render(tagValues[i])));
+            }
+            materialized = Collections.unmodifiableList(list);
+            tags = materialized;
+        }
+        return materialized;
+    }
+
+    void clear() {
+        Arrays.fill(tagKeys, 0, tagCount, null);
+        Arrays.fill(tagValues, 0, tagCount, null);
+        Arrays.fill(histogramKeys, 0, histogramCount, null);
+        Arrays.fill(gaugeKeys, 0, gaugeCount, null);
+        tagCount = 0;
+        histogramCount = 0;
+        gaugeCount = 0;
+        tagHash = 17;
+        tags = null;
+    }
+
+    static String render(Object value) {
+        return value instanceof String s ? s : StructuredArguments.toString(value);
+    }
+
+    /**
+     * Folds one tag into a tag hash.
+     */
+    static int foldTag(int hash, String key, Object value) {
+        return 31 * (31 * hash + key.hashCode()) + valueHash(value);
+    }
+
+    /**
+     * Hash of {@code render(value)}, computed without rendering strings, integral numbers and
+     * booleans.
+     */
+    static int valueHash(Object value) {
+        if (value instanceof String s) return s.hashCode();
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return decimalHash(((Number) value).longValue());
+        }
+        if (value instanceof Boolean b) return b ? TRUE_HASH : FALSE_HASH;
+        return render(value).hashCode();
+    }
+
+    /**
+     * {@code Long.toString(value).hashCode()} without building the string.
+     */
+    static int decimalHash(long value) {
+        if (value == Long.MIN_VALUE) return Long.toString(value).hashCode();
+        int hash = 0;
+        if (value < 0) {
+            hash = '-';
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) divisor *= 10;
+        for (; divisor > 0; divisor /= 10) {
+            hash = 31 * hash + (char) ('0' + (value / divisor) % 10);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.dordor12;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last-value slot for a gauge series, with optional min/max over a time interval.
+ * <p>
+ * Values are stored as {@code double} bits in {@link AtomicLong}s, so an update is a plain
+ * store (plus a CAS per bound when min/max tracking is on) and never allocates. Min/max are kept
+ * for the current interval and the one before it; {@link #min()} and {@link #max()} cover both,
+ * i.e. a rolling window of one to two intervals, and report {@code NaN} once no value has been
+ * seen for a full interval. {@link #last()} is {@code NaN} until the first update.
+ */
+final class GaugeSlot {
+    private static final long NAN_BITS = Double.doubleToRawLongBits(Double.NaN);
+
+    private final long intervalMillis;
+    private final AtomicLong last = new AtomicLong(NAN_BITS);
+
+    // Min/max tracking, only used when intervalMillis > 0
+    private final AtomicLong currentMin = new AtomicLong(NAN_BITS);
+    private final AtomicLong currentMax = new AtomicLong(NAN_BITS);
+    private volatile long previousMin = NAN_BITS;
+    private volatile long previousMax = NAN_BITS;
+    private volatile long interval;
+
+    /**
+     * @param intervalMillis min/max interval length, or {@code 0} to track only the last value
+     */
+    GaugeSlot(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+        if (intervalMillis > 0) {
+            interval = System.currentTimeMillis() / intervalMillis;
+        }
+    }
+
+    void update(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        last.set(bits);
+        if (intervalMillis <= 0) return;
+
+        long now = System.currentTimeMillis() / intervalMillis;
+        if (now != interval) rotate(now);
+        accumulate(currentMin, bits, value, true);
+        accumulate(currentMax, bits, value, false);
+    }
+
+    private static void accumulate(AtomicLong bound, long bits, double value, boolean min) {
+        while (true) {
+            long current = bound.get();
+            double c = Double.longBitsToDouble(current);
+            if (!Double.isNaN(c) && (min ? c <= value : c >= value)) return;
+            if (bound.compareAndSet(current, bits)) return;
+        }
+    }
+
+    private synchronized void rotate(long now) {
+        long current = interval;
+        if (now <= current) return;
+        boolean adjacent = now == current + 1;
+        previousMin = adjacent ? currentMin.get() : NAN_BITS;
+        previousMax = adjacent ? currentMax.get() : NAN_BITS;
+        currentMin.set(NAN_BITS);
+        currentMax.set(NAN_BITS);
+        interval = now;
+    }
+
+    double last() {
+        return Double.longBitsToDouble(last.get());
+    }
+
+    double min() {
+        return windowed(currentMin.get(), previousMin, true);
+    }
+
+    double max() {
+        return windowed(currentMax.get(), previousMax, false);
+    }
+
+    private double windowed(long currentBits, long previousBits, boolean min) {
+        long now = System.currentTimeMillis() / intervalMillis;
+        long current = interval;
+        double c = Double.longBitsToDouble(currentBits);
+        if (current == now) {
+            double p = Double.longBitsToDouble(previousBits);
+            if (Double.isNaN(c)) return p;
+            if (Double.isNaN(p)) return c;
+            return min ? Math.min(c, p) : Math.max(c, p);
+        }
+        // The current interval has ended without a rotation; it is now the previous one
+        return current == now - 1 ? c : Double.NaN;
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Batches histogram recordings in per-thread primitive buffers and merges them into the shared
+ * {@link DistributionSummary} meters in bulk.
+ * <p>
+ * Summaries returned by {@link #wrap} append each value to the calling thread's buffer (a
+ * {@code double[]} plus the target meter) instead of recording into the shared meter, which keeps
+ * its histogram and time-window structures off the logging threads' contended path. A buffer is
+ * merged when it reaches {@value #BUFFER_CAPACITY} values or when {@link #flush()} runs, which the
+ * appender schedules at a fixed interval; that interval bounds how stale a meter can be. Every value
+ * is eventually recorded individually, so count, total and max are exact, only delayed.
+ * <p>
+ * Buffers of threads that have terminated are merged and dropped on the next flush.
+ */
+final class HistogramBatcher {
+    static final int BUFFER_CAPACITY = 256;
+
+    private final Set<Buffer> buffers = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Buffer> threadBuffer = ThreadLocal.withInitial(() -> {
+        Buffer buffer = new Buffer(Thread.currentThread());
+        buffers.add(buffer);
+        return buffer;
+    });
+
+    /**
+     * Per-thread buffer. Only the owning thread appends; the lock is uncontended except while
+     * the flusher is merging it.
+     */
+    private static final class Buffer {
+        private final WeakReference<Thread> owner;
+        private final DistributionSummary[] targets = new DistributionSummary[BUFFER_CAPACITY];
+        private final double[] values = new double[BUFFER_CAPACITY];
+        private int size;
+
+        Buffer(Thread owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+
+        synchronized void add(DistributionSummary target, double value) {
+            targets[size] = target;
+            values[size] = value;
+            if (++size == BUFFER_CAPACITY) drain();
+        }
+
+        synchronized void drain() {
+            for (int i = 0; i < size; i++) {
+                targets[i].record(values[i]);
+                targets[i] = null;
+            }
+            size = 0;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        boolean isOwnerGone() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+
+    /**
+     * Returns a summary that records into {@code target} through this batcher.
+     */
+    DistributionSummary wrap(DistributionSummary target) {
+        return new BatchingSummary(this, target);
+    }
+
+    /**
+     * Merges every thread's buffered values into their meters.
+     */
+    void flush() {
+        for (Buffer buffer : buffers) {
+            // Check before draining so a value added by a live owner is never left behind
+            boolean ownerGone = buffer.isOwnerGone();
+            buffer.drain();
+            if (ownerGone) buffers.remove(buffer);
+        }
+    }
+
+    /**
+     * Number of values buffered across all threads and not yet merged.
+     */
+    int buffered() {
+        int total = 0;
+        for (Buffer buffer : buffers) {
+            total += buffer.size();
+        }
+        return total;
+    }
+
+    /**
+     * Buffers {@link #record(double)}; reads delegate to the shared meter and reflect values
+     * merged so far.
+     */
+    private static final class BatchingSummary implements DistributionSummary {
+        private final HistogramBatcher batcher;
+        private final DistributionSummary target;
+
+        BatchingSummary(HistogramBatcher batcher, DistributionSummary target) {
+            this.batcher = batcher;
+            this.target = target;
+        }
+
+        @Override
+        public void record(double amount) {
+            batcher.threadBuffer.get().add(target, amount);
+        }
+
+        @Override
+        public long count() {
+            return target.count();
+        }
+
+        @Override
+        public double totalAmount() {
+            return target.totalAmount();
+        }
+
+        @Override
+        public double max() {
+            return target.max();
+        }
+
+        @Override
+        public HistogramSnapshot takeSnapshot() {
+            return target.takeSnapshot();
+        }
+
+        @Override
+        public Id getId() {
+            return target.getId();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.dordor12;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Distribution settings for one auto-histogram field, configured in {@code logback.xml}:
+ * <pre>{@code
+ * <histogramField>
+ *     <name>response_time_ms</name>
+ *     <percentiles>0.5,0.99</percentiles>
+ *     <serviceLevelObjectives>100,250,1000</serviceLevelObjectives>
+ *     <maximumExpectedValue>30000</maximumExpectedValue>
+ * </histogramField>
+ * }</pre>
+ * Lists are comma-separated. {@code timer} records the field as a Micrometer {@code Timer} whose
+ * unit is taken from the field's {@code _ns}, {@code _us}, {@code _ms} or {@code _s} suffix (or
+ * {@code timeUnit}); SLOs and expected values are then in that unit. Leave {@code timer} unset to
+ * follow the appender's {@code enableTimerSuffixes}.
+ */
+@Getter
+@Setter
+public class HistogramField {
+    private String name;
+    private String baseUnit;
+    private String percentiles;
+    private String serviceLevelObjectives;
+    private Double minimumExpectedValue;
+    private Double maximumExpectedValue;
+    private Boolean publishPercentileHistogram;
+    private Boolean timer;
+    private String timeUnit;
+}
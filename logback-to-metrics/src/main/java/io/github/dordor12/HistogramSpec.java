@@ -0,0 +1,153 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsed, immutable distribution settings for a histogram field, compiled once from a
+ * {@link HistogramField} so that registering a series only applies ready values to a builder.
+ */
+final class HistogramSpec {
+    static final HistogramSpec DEFAULT = new HistogramSpec(null, null, null, null, null, null, null);
+
+    private static final HistogramSpec[] SUFFIX_TIMERS = {
+            // Indexed by TimeUnit ordinal, NANOSECONDS through SECONDS
+            timer(TimeUnit.NANOSECONDS), timer(TimeUnit.MICROSECONDS),
+            timer(TimeUnit.MILLISECONDS), timer(TimeUnit.SECONDS)
+    };
+
+    private final String baseUnit;
+    private final double[] percentiles;
+    private final double[] serviceLevelObjectives;
+    private final Double minimumExpectedValue;
+    private final Double maximumExpectedValue;
+    private final Boolean publishPercentileHistogram;
+    // Non-null when the field is recorded as a Timer, in the unit of the logged values
+    private final TimeUnit timerUnit;
+    // Timer fields: SLOs and expected values converted to durations up front
+    private final Duration[] sloDurations;
+    private final Duration minimumExpectedDuration;
+    private final Duration maximumExpectedDuration;
+
+    private HistogramSpec(String baseUnit, double[] percentiles, double[] serviceLevelObjectives,
+                          Double minimumExpectedValue, Double maximumExpectedValue,
+                          Boolean publishPercentileHistogram, TimeUnit timerUnit) {
+        this.baseUnit = baseUnit;
+        this.percentiles = percentiles;
+        this.serviceLevelObjectives = serviceLevelObjectives;
+        this.minimumExpectedValue = minimumExpectedValue;
+        this.maximumExpectedValue = maximumExpectedValue;
+        this.publishPercentileHistogram = publishPercentileHistogram;
+        this.timerUnit = timerUnit;
+        if (timerUnit != null && serviceLevelObjectives != null) {
+            sloDurations = new Duration[serviceLevelObjectives.length];
+            for (int i = 0; i < sloDurations.length; i++) {
+                sloDurations[i] = duration(serviceLevelObjectives[i]);
+            }
+        } else {
+            sloDurations = null;
+        }
+        minimumExpectedDuration = timerUnit != null && minimumExpectedValue != null ? duration(minimumExpectedValue) : null;
+        maximumExpectedDuration = timerUnit != null && maximumExpectedValue != null ? duration(maximumExpectedValue) : null;
+    }
+
+    private static HistogramSpec timer(TimeUnit unit) {
+        return new HistogramSpec(null, null, null, null, null, null, unit);
+    }
+
+    /**
+     * Compiles a configured field.
+     *
+     * @param timerSuffixes whether a field without an explicit {@code timer} setting is a timer
+     *                      when its name has a time-unit suffix
+     * @throws IllegalArgumentException if a list or time unit cannot be parsed
+     */
+    static HistogramSpec compile(HistogramField field, boolean timerSuffixes) {
+        TimeUnit timerUnit = null;
+        boolean timer = field.getTimer() != null ? field.getTimer() : timerSuffixes && suffixUnit(field.getName()) != null;
+        if (timer) {
+            timerUnit = field.getTimeUnit() != null
+                    ? TimeUnit.valueOf(field.getTimeUnit().trim().toUpperCase(Locale.ROOT))
+                    : suffixUnit(field.getName());
+            if (timerUnit == null) {
+                throw new IllegalArgumentException("No time unit for timer field " + field.getName());
+            }
+        }
+        return new HistogramSpec(field.getBaseUnit(), parseList(field.getPercentiles()),
+                parseList(field.getServiceLevelObjectives()), field.getMinimumExpectedValue(),
+                field.getMaximumExpectedValue(), field.getPublishPercentileHistogram(), timerUnit);
+    }
+
+    /**
+     * Timer spec for an unconfigured field whose name has a time-unit suffix, or {@code null}.
+     */
+    static HistogramSpec forSuffix(String key) {
+        TimeUnit unit = suffixUnit(key);
+        return unit == null ? null : SUFFIX_TIMERS[unit.ordinal()];
+    }
+
+    static TimeUnit suffixUnit(String key) {
+        if (key == null) return null;
+        if (key.endsWith("_ns")) return TimeUnit.NANOSECONDS;
+        if (key.endsWith("_us")) return TimeUnit.MICROSECONDS;
+        if (key.endsWith("_ms")) return TimeUnit.MILLISECONDS;
+        if (key.endsWith("_s")) return TimeUnit.SECONDS;
+        return null;
+    }
+
+    private static double[] parseList(String list) {
+        if (list == null || list.isBlank()) return null;
+        String[] parts = list.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+
+    private Duration duration(double amount) {
+        return Duration.ofNanos((long) (amount * timerUnit.toNanos(1)));
+    }
+
+    boolean isTimer() {
+        return timerUnit != null;
+    }
+
+    /**
+     * Percentiles for sketch-backed series: the configured ones, else the sketch defaults.
+     */
+    double[] sketchPercentiles() {
+        return percentiles != null ? percentiles : SketchSummary.DEFAULT_PERCENTILES;
+    }
+
+    /**
+     * Registers a Micrometer {@link DistributionSummary} or, for timer fields, a {@link Timer}
+     * adapted to the summary interface.
+     */
+    DistributionSummary register(String name, Iterable<Tag> tags, MeterRegistry registry) {
+        if (timerUnit != null) {
+            Timer.Builder builder = Timer.builder(name).tags(tags);
+            if (percentiles != null) builder.publishPercentiles(percentiles);
+            if (publishPercentileHistogram != null) builder.publishPercentileHistogram(publishPercentileHistogram);
+            if (sloDurations != null) builder.serviceLevelObjectives(sloDurations);
+            if (minimumExpectedDuration != null) builder.minimumExpectedValue(minimumExpectedDuration);
+            if (maximumExpectedDuration != null) builder.maximumExpectedValue(maximumExpectedDuration);
+            return new TimerSummary(builder.register(registry), timerUnit);
+        }
+
+        DistributionSummary.Builder builder = DistributionSummary.builder(name).tags(tags);
+        if (baseUnit != null) builder.baseUnit(baseUnit);
+        if (percentiles != null) builder.publishPercentiles(percentiles);
+        if (publishPercentileHistogram != null) builder.publishPercentileHistogram(publishPercentileHistogram);
+        if (serviceLevelObjectives != null) builder.serviceLevelObjectives(serviceLevelObjectives);
+        if (minimumExpectedValue != null) builder.minimumExpectedValue(minimumExpectedValue);
+        if (maximumExpectedValue != null) builder.maximumExpectedValue(maximumExpectedValue);
+        return builder.register(registry);
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.dordor12;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled whitelist/blacklist of keys. Entries are exact names, globs ({@code *} matches any
+ * run of characters, {@code ?} one character, e.g. {@code http_*} or {@code *_ms}) or regular
+ * expressions prefixed with {@value #REGEX_PREFIX}.
+ * <p>
+ * Exact names are kept in a hash set. All globs and regexes of a list are combined into one
+ * alternation {@link Pattern}, so a key is matched against each list once. Decisions involving
+ * patterns are memoized per key, so a pattern runs only on the first sighting of a key. A literal
+ * key hits by identity in {@code String.equals}. At most {@value #MAX_CACHED_KEYS} decisions are
+ * kept; the memo is cleared when full. Without patterns the sets are consulted directly.
+ */
+final class KeyFilter {
+    static final String REGEX_PREFIX = "regex:";
+    static final int MAX_CACHED_KEYS = 10_000;
+
+    private final Set<String> whitelist;
+    private final Set<String> blacklist;
+    private final Pattern whitelistPattern;
+    private final Pattern blacklistPattern;
+    private final boolean restricted;
+    private final ConcurrentHashMap<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+    private KeyFilter(Set<String> whitelist, Set<String> blacklist, Pattern whitelistPattern,
+                      Pattern blacklistPattern, boolean restricted) {
+        this.whitelist = whitelist;
+        this.blacklist = blacklist;
+        this.whitelistPattern = whitelistPattern;
+        this.blacklistPattern = blacklistPattern;
+        this.restricted = restricted;
+    }
+
+    /**
+     * Compiles both lists. Invalid regexes are reported to {@code errors} and skipped.
+     */
+    static KeyFilter compile(Collection<String> whitelist, Collection<String> blacklist, Consumer<String> errors) {
+        Set<String> whiteNames = new HashSet<>();
+        Set<String> blackNames = new HashSet<>();
+        Pattern whitePattern = compileList(whitelist, whiteNames, errors);
+        Pattern blackPattern = compileList(blacklist, blackNames, errors);
+        return new KeyFilter(whiteNames, blackNames, whitePattern, blackPattern, !whitelist.isEmpty());
+    }
+
+    /**
+     * Whether a key passes: in the whitelist (if there is one) and not in the blacklist.
+     */
+    boolean accepts(String key) {
+        if (whitelistPattern == null && blacklistPattern == null) {
+            return decide(key);
+        }
+        Boolean cached = decisions.get(key);
+        if (cached != null) return cached;
+        boolean accepted = decide(key);
+        if (decisions.size() >= MAX_CACHED_KEYS) decisions.clear();
+        decisions.put(key, accepted);
+        return accepted;
+    }
+
+    private boolean decide(String key) {
+        if (restricted && !matches(key, whitelist, whitelistPattern)) return false;
+        return !matches(key, blacklist, blacklistPattern);
+    }
+
+    private static boolean matches(String key, Set<String> names, Pattern pattern) {
+        return names.contains(key) || (pattern != null && pattern.matcher(key).matches());
+    }
+
+    private static Pattern compileList(Collection<String> entries, Set<String> names, Consumer<String> errors) {
+        List<String> alternatives = new ArrayList<>();
+        for (String entry : entries) {
+            if (entry == null) continue;
+            if (entry.startsWith(REGEX_PREFIX)) {
+                String regex = entry.substring(REGEX_PREFIX.length());
+                try {
+                    Pattern.compile(regex);
+                    alternatives.add(regex);
+                } catch (PatternSyntaxException e) {
+                    errors.accept("Invalid key pattern '" + entry + "': " + e.getDescription());
+                }
+            } else if (entry.indexOf('*') >= 0 || entry.indexOf('?') >= 0) {
+                alternatives.add(globToRegex(entry));
+            } else {
+                names.add(entry);
+            }
+        }
+        if (alternatives.isEmpty()) return null;
+        var combined = new StringBuilder();
+        for (String alternative : alternatives) {
+            if (combined.length() > 0) combined.append('|');
+            combined.append("(?:").append(alternative).append(')');
+        }
+        return Pattern.compile(combined.toString());
+    }
+
+    static String globToRegex(String glob) {
+        var regex = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c != '*' && c != '?') continue;
+            if (i > literalStart) regex.append(Pattern.quote(glob.substring(literalStart, i)));
+            regex.append(c == '*' ? ".*" : ".");
+            literalStart = i + 1;
+        }
+        if (literalStart < glob.length()) regex.append(Pattern.quote(glob.substring(literalStart)));
+        return regex.toString();
+    }
+}
@@ -2,15 +2,26 @@ package io.github.dordor12;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
 import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
+import net.logstash.logback.marker.MapEntriesAppendingMarker;
+import net.logstash.logback.marker.ObjectAppendingMarker;
 import net.logstash.logback.marker.SingleFieldAppendingMarker;
 import lombok.Getter;
 import lombok.Setter;
@@ -28,7 +39,7 @@ import org.slf4j.Marker;
  *   <li>Zero-allocation hot path via CacheKey lookups</li>
  *   <li>No JSON round-tripping — extracts data directly from event objects</li>
  *   <li>Circuit breaker when metric limits are reached</li>
- *   <li>Fast numeric pre-check to avoid NumberFormatException stack traces</li>
+ *   <li>Allocation-free numeric parsing without NumberFormatException stack traces</li>
  * </ul>
  * <p>
  * <b>Cardinality Protection</b>: When enabled, automatically detects tag keys
@@ -46,36 +57,178 @@ import org.slf4j.Marker;
  *   <li>{@code histograms.created} — Counter for total histograms registered</li>
  *   <li>{@code counters.active} — Gauge for current active counters</li>
  *   <li>{@code histograms.active} — Gauge for current active histograms</li>
+ *   <li>{@code gauges.active} — Gauge for current active gauge series</li>
+ *   <li>{@code templates.mined} — Gauge for templates found by template mining</li>
+ *   <li>{@code fields.numeric} — Gauge for fields settled as numeric by numeric field routing</li>
  *   <li>{@code cardinality.blacklisted} — Counter for auto-blacklisted keys</li>
  *   <li>{@code cardinality.reregister.duration} — Timer for re-registration</li>
  *   <li>{@code counters.saturated} — Gauge: 1 if counter limit reached, else 0</li>
  *   <li>{@code events.dropped} — Counter for events skipped by circuit breaker</li>
+ *   <li>{@code registrations.pending} — Gauge for series whose registration is in flight</li>
+ *   <li>{@code histograms.buffered} — Gauge for batched histogram values not yet merged</li>
  * </ul>
+ * <p>
+ * <b>Deferred Registration</b>: When enabled, a series miss never touches the Micrometer
+ * registry on the logging thread. The event is counted in a provisional pending slot and the
+ * registration is queued to a background worker thread, which publishes the meter and
+ * transfers the provisional counts into it.
+ * <p>
+ * <b>Counter Storage</b>: By default every series is a Micrometer {@link Counter}. With
+ * {@link CounterStorage#HEAP} or {@link CounterStorage#OFF_HEAP}, counts are kept in primitive
+ * {@code long} slots of a {@link SeriesStore} and exposed to Micrometer as {@link FunctionCounter}s,
+ * so an increment is a single atomic add on one slot.
+ * <p>
+ * <b>Series Index</b>: When enabled, hot-path lookups go through a {@link SeriesIndex}, a
+ * primitive open-addressing table keyed by a 64-bit (template, tag hash) fingerprint with
+ * lock-free reads, shared by counters and histograms. The counter and histogram maps stay
+ * authoritative; the index caches their entries.
+ * <p>
+ * <b>Lookup Cache</b>: When enabled, each thread checks a small direct-mapped {@link LookupCache}
+ * keyed by template identity and tag hash before the shared counter lookup, so a repeated
+ * template only touches thread-private memory. Re-registration invalidates all cached entries.
+ * <p>
+ * <b>Histogram Backend</b>: By default every auto-histogram series is a Micrometer
+ * {@link DistributionSummary}. With {@link HistogramBackend#SKETCH}, each series is a fixed-size
+ * {@link QuantileSketch} exposed as count/sum function counters and max/percentile gauges. With
+ * {@link HistogramBackend#TIERED}, each series starts as a {@link TieredSummary} count/sum/max
+ * triple and gets a full summary once it exceeds {@code histogramPromotionRate} values per second.
+ * <p>
+ * <b>Histogram Fields</b>: {@link HistogramField} entries set per-field distribution settings
+ * (base unit, percentiles, SLO buckets, expected range) and can record a field as a Micrometer
+ * {@link Timer}; {@code enableTimerSuffixes} does so for every field named with a time-unit suffix.
+ * <p>
+ * <b>Argument Mappings</b>: {@link ArgumentMapping} entries map plain positional arguments of a
+ * message template to tags and histogram values. They are compiled once per template into an
+ * {@link ArgumentRule} and resolved against the raw argument array; the message is never formatted.
+ * <p>
+ * <b>Name Sanitizer</b>: When enabled, the template part of every metric name is mapped once per
+ * template by a {@link MetricNameSanitizer} to a canonical segment of ASCII letters, digits and
+ * underscores, with length limits and a template hash on every lossy name.
+ * <p>
+ * <b>Template Mining</b>: When enabled, messages logged without arguments are mapped to a template
+ * mined online by a {@link TemplateMiner} (Drain-style parse tree with masking of numbers, ids and
+ * hex), so string-concatenated messages share one series instead of one per distinct message.
+ * <p>
+ * <b>Tag Normalization</b>: {@code tagNormalizer} steps rewrite the values of a tag key before
+ * they are hashed and registered (status classes, path ids, truncation, numeric buckets, regex
+ * replacement). Each key's chain is compiled into a {@link ValueNormalizer} that memoizes results
+ * per raw value.
+ * <p>
+ * <b>Rollups</b>: Each configured {@code rollup} keeps a second counter per template with only
+ * the chosen tags (e.g. just {@code level}). Every event increments its detailed counter and each
+ * rollup counter, looked up and registered through the same machinery with a {@link RollupSpec}
+ * hash over the kept tags, so totals can be queried without summing detailed series.
+ * <p>
+ * <b>Numeric Field Routing</b>: When enabled and no {@code kvWhitelist} is configured, fields
+ * whose values are numbers are kept out of counter tags and only feed histograms. A
+ * {@link NumericFieldRouter} settles each (template, key) as numeric or text after a few values.
+ * <p>
+ * <b>Unit Parsing</b>: Numeric values are parsed by a {@link NumericParser} without boxing or
+ * exceptions. When enabled, values such as {@code 12ms}, {@code 1.5s}, {@code 4KB} or
+ * {@code 1,024} are also numeric, scaled to {@code timeBaseUnit} and {@code sizeBaseUnit}.
+ * <p>
+ * <b>Exception Tags</b>: {@code enableExceptionTag} and {@code enableRootCauseTag} add
+ * {@code exception} and {@code root_cause} tags with the throwable's class name (or {@code none}),
+ * read from {@link IThrowableProxy#getClassName()} without touching stack frames.
+ * <p>
+ * <b>Gauges</b>: Keys added with {@code gaugeKey} are levels (queue depths, pool sizes) rather than
+ * distributions: their last value per series is kept in a {@link GaugeSlot} and exposed as a
+ * Micrometer gauge, optionally with min/max over {@code gaugeIntervalMillis}.
+ * <p>
+ * <b>Histogram Batching</b>: When enabled, histogram values are appended to per-thread buffers by
+ * a {@link HistogramBatcher} and merged into the shared summaries when a buffer fills, every
+ * {@code histogramFlushIntervalMillis} on the background worker, and on {@link #stop()}.
  */
 @Getter
 @Setter
 public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
-    private static final Set<String> FIXED_TAG_KEYS = Set.of("level", "logger_name", "thread_name");
+    private static final Set<String> FIXED_TAG_KEYS = Set.of("level", "logger_name", "thread_name", "exception", "root_cause");
+    // Tag value for events without a throwable, so every series of a metric has the same tag keys
+    private static final String NO_EXCEPTION = "none";
+    // Bound on getCause() hops, guarding against cyclic cause chains
+    private static final int MAX_CAUSE_DEPTH = 32;
 
     private List<String> kvWhitelist = new ArrayList<>();
     private List<String> kvBlacklist = new ArrayList<>();
     private Set<String> kvWhitelistSet = new HashSet<>();
     private Set<String> kvBlacklistSet = new HashSet<>();
+    // Whitelist/blacklist with glob and regex entries, compiled at start()
+    private volatile KeyFilter kvFilter;
     private ConcurrentHashMap<CacheKey, Counter> counters = new ConcurrentHashMap<>();
     private Long maxCounters = 10000L;
     private String counterJoinString = ".";
     private String counterNamePrefix = "logback.to.metrics";
     private String counterNameSubfix = "counter";
+    // Canonical backend-valid names per template (off by default, keeping the legacy naming)
+    private boolean enableNameSanitizer = false;
+    private int maxMetricNameLength = 150;
+    private volatile MetricNameSanitizer nameSanitizer;
+
+    // Counter storage engine (Micrometer counters by default)
+    private CounterStorage counterStorage = CounterStorage.MICROMETER;
+    private volatile SeriesStore seriesStore;
+    // Slot handles by registered meter id, so a re-registered id reuses its slot
+    private final ConcurrentHashMap<Meter.Id, SlotCounter> slotCounters = new ConcurrentHashMap<>();
 
     // Histogram configuration
     private boolean enableAutoHistograms = false;
+    private HistogramBackend histogramBackend = HistogramBackend.SUMMARY;
+    // TIERED backend: values per second at which a series gets a full summary
+    private long histogramPromotionRate = 100L;
     private List<String> histogramKvWhitelist = new ArrayList<>();
     private List<String> histogramKvBlacklist = new ArrayList<>();
     private Set<String> histogramKvWhitelistSet = new HashSet<>();
     private Set<String> histogramKvBlacklistSet = new HashSet<>();
+    private volatile KeyFilter histogramKvFilter;
     private ConcurrentHashMap<CacheKey, DistributionSummary> histograms = new ConcurrentHashMap<>();
     private Long maxHistograms = 10000L;
     private String histogramNameSubfix = "histogram";
+    // Per-field distribution settings, compiled into histogramSpecs at start()
+    private List<HistogramField> histogramFields = new ArrayList<>();
+    private volatile Map<String, HistogramSpec> histogramSpecs;
+    // Record unconfigured fields with a _ns/_us/_ms/_s suffix as Timers (off by default)
+    private boolean enableTimerSuffixes = false;
+
+    // Gauge configuration: fields recorded as last-value gauges instead of tags/histograms
+    private List<String> gaugeKeys = new ArrayList<>();
+    private Set<String> gaugeKeySet = new HashSet<>();
+    private ConcurrentHashMap<CacheKey, GaugeSlot> gauges = new ConcurrentHashMap<>();
+    private Long maxGauges = 10000L;
+    private String gaugeNameSubfix = "gauge";
+    // Also publish min/max over gaugeIntervalMillis (off by default)
+    private boolean enableGaugeMinMax = false;
+    private long gaugeIntervalMillis = 60000L;
+
+    // Positional argument mappings per message template, compiled into argumentRules at start()
+    private List<ArgumentMapping> argumentMappings = new ArrayList<>();
+    private volatile Map<String, ArgumentRule> argumentRules;
+
+    // Template mining for messages logged without arguments (off by default)
+    private boolean enableTemplateMining = false;
+    private int maxTemplates = 1000;
+    private volatile TemplateMiner templateMiner;
+
+    // Tag value normalization chains per key, compiled into valueNormalizers at start()
+    private List<TagNormalizer> tagNormalizers = new ArrayList<>();
+    private volatile Map<String, ValueNormalizer> valueNormalizers;
+
+    // Rollup counters keeping only some tags, compiled into rollupSpecs at start()
+    private List<Rollup> rollups = new ArrayList<>();
+    private volatile RollupSpec[] rollupSpecs;
+
+    // Numeric fields are histogram values, not counter tags (off by default)
+    private boolean enableNumericFieldRouting = false;
+    private final NumericFieldRouter numericFieldRouter = new NumericFieldRouter();
+
+    // Unit suffixes and thousands separators in numeric values (off by default)
+    private boolean enableUnitParsing = false;
+    private String timeBaseUnit = "ms";
+    private String sizeBaseUnit = "B";
+    private volatile NumericParser numericParser;
+
+    // Exception class tags from the event's throwable proxy (off by default)
+    private boolean enableExceptionTag = false;
+    private boolean enableRootCauseTag = false;
 
     // Cardinality protection (off by default)
     private boolean enableCardinalityProtection = false;
@@ -90,6 +243,32 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
     // Lock for re-registration (cold path only)
     private final ReentrantLock reRegisterLock = new ReentrantLock();
 
+    // Single-flight registration: series currently being registered by one thread.
+    // Concurrent misses on the same key record into the pending slot instead of the registry.
+    private final ConcurrentHashMap<CacheKey, PendingSeries> pendingCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<CacheKey, PendingSeries> pendingHistograms = new ConcurrentHashMap<>();
+    // Gauge slots take values directly, so a pending gauge is its slot awaiting registration
+    private final ConcurrentHashMap<CacheKey, GaugeSlot> pendingGauges = new ConcurrentHashMap<>();
+
+    // Deferred registration (off by default): series misses are counted in their pending slot
+    // and the Micrometer registration runs on a background thread instead of the logging thread
+    private boolean enableDeferredRegistration = false;
+    private volatile ScheduledExecutorService backgroundExecutor;
+
+    // Primitive open-addressing index in front of counters/histograms (off by default)
+    private boolean enableSeriesIndex = false;
+    private final SeriesIndex seriesIndex = new SeriesIndex();
+
+    // Per-thread direct-mapped cache in front of the counter lookup (off by default)
+    private boolean enableLookupCache = false;
+    private final LookupCache<Counter> lookupCache = new LookupCache<>();
+
+    // Batched histogram recording (off by default): values are buffered per thread and
+    // merged into the shared summaries every histogramFlushIntervalMillis
+    private boolean enableHistogramBatching = false;
+    private long histogramFlushIntervalMillis = 1000L;
+    private final HistogramBatcher histogramBatcher = new HistogramBatcher();
+
     // Circuit breaker flags — once saturated, skip all computation
     private volatile boolean countersSaturated = false;
     private volatile boolean histogramsSaturated = false;
@@ -104,10 +283,12 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
     private Counter cardinalityBlacklistedCounter;
     private Timer reregisterTimer;
     private Counter eventsDroppedCounter;
+    private Counter pendingValuesDroppedCounter;
 
     /**
      * Adds a key to the whitelist for metric tag extraction.
      * Only keys in the whitelist will be included as metric tags.
+     * The key may be a glob ({@code http_*}) or a regex prefixed with {@code regex:}.
      * This method is called by Logback when parsing XML configuration.
      *
      * @param whiteList the key to add to the whitelist
@@ -115,11 +296,13 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
     public void addKvWhitelist(String whiteList) {
         this.kvWhitelist.add(whiteList);
         kvWhitelistSet.add(whiteList);
+        kvFilter = null;
     }
 
     /**
      * Adds a key to the blacklist for metric tag extraction.
      * Keys in the blacklist will be excluded from metric tags.
+     * The key may be a glob ({@code *_id}) or a regex prefixed with {@code regex:}.
      * This method is called by Logback when parsing XML configuration.
      *
      * @param blackList the key to add to the blacklist
@@ -127,11 +310,13 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
     public void addKvBlacklist(String blackList) {
         this.kvBlacklist.add(blackList);
         kvBlacklistSet.add(blackList);
+        kvFilter = null;
     }
 
     /**
      * Adds a key to the whitelist for histogram creation.
      * Only keys in the whitelist will be considered for histogram creation.
+     * The key may be a glob ({@code *_ms}) or a regex prefixed with {@code regex:}.
      * This method is called by Logback when parsing XML configuration.
      *
      * @param whiteList the key to add to the histogram whitelist
@@ -139,11 +324,13 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
     public void addHistogramKvWhitelist(String whiteList) {
         this.histogramKvWhitelist.add(whiteList);
         histogramKvWhitelistSet.add(whiteList);
+        histogramKvFilter = null;
     }
 
     /**
      * Adds a key to the blacklist for histogram creation.
      * Keys in the blacklist will be excluded from histogram creation.
+     * The key may be a glob or a regex prefixed with {@code regex:}.
      * This method is called by Logback when parsing XML configuration.
      *
      * @param blackList the key to add to the histogram blacklist
@@ -151,6 +338,101 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
     public void addHistogramKvBlacklist(String blackList) {
         this.histogramKvBlacklist.add(blackList);
         histogramKvBlacklistSet.add(blackList);
+        histogramKvFilter = null;
+    }
+
+    /**
+     * Adds a key whose numeric values are recorded as a last-value gauge.
+     * Gauge keys are never used as tags or histograms.
+     * This method is called by Logback when parsing XML configuration.
+     *
+     * @param gaugeKey the key to record as a gauge
+     */
+    public void addGaugeKey(String gaugeKey) {
+        this.gaugeKeys.add(gaugeKey);
+        gaugeKeySet.add(gaugeKey);
+    }
+
+    /**
+     * Adds a positional argument mapping for one message template.
+     * This method is called by Logback when parsing XML configuration.
+     *
+     * @param argumentMapping the template and its argument mappings
+     */
+    public void addArgumentMapping(ArgumentMapping argumentMapping) {
+        this.argumentMappings.add(argumentMapping);
+        argumentRules = null;
+    }
+
+    /**
+     * Adds a value normalization step for one tag key.
+     * This method is called by Logback when parsing XML configuration.
+     *
+     * @param tagNormalizer the key and the step to apply to its values
+     */
+    public void addTagNormalizer(TagNormalizer tagNormalizer) {
+        this.tagNormalizers.add(tagNormalizer);
+        valueNormalizers = null;
+    }
+
+    /**
+     * Adds a rollup counter kept per template alongside the detailed one.
+     *
+     * @param rollup the tag keys to keep and an optional name
+     */
+    public void addRollup(Rollup rollup) {
+        this.rollups.add(rollup);
+        rollupSpecs = null;
+    }
+
+    public void setEnableUnitParsing(boolean enableUnitParsing) {
+        this.enableUnitParsing = enableUnitParsing;
+        numericParser = null;
+    }
+
+    public void setTimeBaseUnit(String timeBaseUnit) {
+        this.timeBaseUnit = timeBaseUnit;
+        numericParser = null;
+    }
+
+    public void setSizeBaseUnit(String sizeBaseUnit) {
+        this.sizeBaseUnit = sizeBaseUnit;
+        numericParser = null;
+    }
+
+    /**
+     * Adds distribution settings for one histogram field.
+     * This method is called by Logback when parsing XML configuration.
+     *
+     * @param histogramField the field settings
+     */
+    public void addHistogramField(HistogramField histogramField) {
+        this.histogramFields.add(histogramField);
+        histogramSpecs = null;
+    }
+
+    /**
+     * Storage engine for counter series.
+     */
+    public enum CounterStorage {
+        /** Each series is a regular Micrometer {@link Counter}. */
+        MICROMETER,
+        /** Counts in on-heap {@code long[]} chunks, exposed as {@link FunctionCounter}s. */
+        HEAP,
+        /** Counts in off-heap direct buffers, exposed as {@link FunctionCounter}s. */
+        OFF_HEAP
+    }
+
+    /**
+     * Backend for auto-histogram series.
+     */
+    public enum HistogramBackend {
+        /** Each series is a regular Micrometer {@link DistributionSummary}. */
+        SUMMARY,
+        /** Fixed-size {@link QuantileSketch} per series, exposed through function meters and percentile gauges. */
+        SKETCH,
+        /** Count/sum/max function meters per series, promoted to a {@link DistributionSummary} once hot. */
+        TIERED
     }
 
     /**
@@ -159,10 +441,63 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
      */
     record CacheKey(String message, int tagHash) {}
 
+    /**
+     * Visits the entries of a map marker through {@link Map#forEach}, so no iterator or entry
+     * object is allocated. One per thread, kept in {@link EventFields} and bound to the appender
+     * and event for the duration of a visit.
+     */
+    static final class EntryVisitor implements BiConsumer<Object, Object> {
+        private LogbackToMetricsAppender appender;
+        private EventFields fields;
+        private String template;
+        private boolean histograms;
+
+        void visit(LogbackToMetricsAppender appender, EventFields fields, String template, Map<?, ?> entries,
+                   boolean histograms) {
+            this.appender = appender;
+            this.fields = fields;
+            this.template = template;
+            this.histograms = histograms;
+            try {
+                entries.forEach(this);
+            } finally {
+                this.appender = null;
+                this.fields = null;
+                this.template = null;
+            }
+        }
+
+        @Override
+        public void accept(Object key, Object value) {
+            if (key != null) appender.extractField(fields, template, key.toString(), value, histograms);
+        }
+    }
+
     @Override
     public void start() {
         super.start();
 
+        // Precompute histogram builder settings so registration only applies them
+        histogramSpecs = compileHistogramSpecs();
+        argumentRules = compileArgumentRules();
+        valueNormalizers = compileValueNormalizers();
+        rollupSpecs = compileRollups();
+        kvFilter = KeyFilter.compile(kvWhitelistSet, kvBlacklistSet, this::addError);
+        histogramKvFilter = KeyFilter.compile(histogramKvWhitelistSet, histogramKvBlacklistSet, this::addError);
+        numericParser = compileNumericParser();
+
+        if (enableDeferredRegistration || enableHistogramBatching) {
+            backgroundExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "logback-to-metrics-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (enableHistogramBatching) {
+            backgroundExecutor.scheduleWithFixedDelay(histogramBatcher::flush,
+                    histogramFlushIntervalMillis, histogramFlushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
         if (!enableSelfObservability) return;
 
         // Register self-observability metrics
@@ -172,10 +507,56 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
         histogramsCreatedCounter = Metrics.counter(prefix + ".histograms.created");
         Metrics.gauge(prefix + ".counters.active", counters, ConcurrentHashMap::size);
         Metrics.gauge(prefix + ".histograms.active", histograms, ConcurrentHashMap::size);
+        if (!gaugeKeySet.isEmpty()) {
+            Metrics.gauge(prefix + ".gauges.active", gauges, ConcurrentHashMap::size);
+        }
+        if (enableTemplateMining) {
+            Metrics.gauge(prefix + ".templates.mined", this, a -> a.templateMiner().size());
+        }
+        if (enableNumericFieldRouting) {
+            Metrics.gauge(prefix + ".fields.numeric", numericFieldRouter, NumericFieldRouter::numericFields);
+        }
         cardinalityBlacklistedCounter = Metrics.counter(prefix + ".cardinality.blacklisted");
         reregisterTimer = Metrics.timer(prefix + ".cardinality.reregister.duration");
         Metrics.gauge(prefix + ".counters.saturated", this, a -> a.isCountersSaturated() ? 1 : 0);
         eventsDroppedCounter = Metrics.counter(prefix + ".events.dropped");
+        Metrics.gauge(prefix + ".registrations.pending", this,
+                a -> a.pendingCounters.size() + a.pendingHistograms.size() + a.pendingGauges.size());
+        pendingValuesDroppedCounter = Metrics.counter(prefix + ".registrations.values.dropped");
+        if (enableSeriesIndex) {
+            Metrics.gauge(prefix + ".series.index.bytes", seriesIndex, SeriesIndex::footprintBytes);
+            Metrics.gauge(prefix + ".series.index.probe.max", seriesIndex, SeriesIndex::maxProbeLength);
+            Metrics.gauge(prefix + ".series.index.probe.mean", seriesIndex, SeriesIndex::meanProbeLength);
+        }
+        if (enableHistogramBatching) {
+            Metrics.gauge(prefix + ".histograms.buffered", histogramBatcher, HistogramBatcher::buffered);
+        }
+        if (counterStorage != CounterStorage.MICROMETER) {
+            Metrics.gauge(prefix + ".series.store.bytes", this,
+                    a -> a.seriesStore != null ? a.seriesStore.footprintBytes() : 0);
+        }
+    }
+
+    @Override
+    public void stop() {
+        // Drain queued registrations so pending slots are published before shutdown
+        ScheduledExecutorService executor = backgroundExecutor;
+        if (executor != null) {
+            backgroundExecutor = null;
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    addWarn("Timed out waiting for pending metric registrations");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Merge whatever is still buffered, including values replayed by drained registrations
+        if (enableHistogramBatching) {
+            histogramBatcher.flush();
+        }
+        super.stop();
     }
 
     @Override
@@ -197,180 +578,452 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
             return;
         }
 
-        // Compute cache key with minimal allocation (hash only, no string concat)
         String message = eventObject.getMessage();
-        int tagHash = computeTagHash(eventObject);
-        var key = new CacheKey(message, tagHash);
+        if (enableTemplateMining) {
+            message = minedTemplate(eventObject, message);
+        }
+
+        // One pass over MDC, arguments and markers: tag hash (no tag strings), histogram and gauge values
+        EventFields fields = EventFields.begin();
+        try {
+            extractFields(eventObject, message, fields, enableAutoHistograms && !histogramsSaturated);
+            int tagHash = fields.tagHash();
+
+            countEvent(fields, message, tagHash, null);
+            if (!rollups.isEmpty()) {
+                for (RollupSpec rollup : rollupSpecs()) {
+                    countEvent(fields, message, rollup.hash(fields), rollup);
+                }
+            }
 
+            for (int i = 0; i < fields.histogramCount(); i++) {
+                recordHistogramValue(fields.histogramKey(i), fields.histogramValue(i), message, tagHash, fields);
+            }
+            for (int i = 0; i < fields.gaugeCount(); i++) {
+                recordGauge(fields.gaugeKey(i), fields.gaugeValue(i), message, tagHash, fields);
+            }
+        } finally {
+            fields.clear();
+        }
+    }
+
+    /**
+     * Increments the event's detailed counter, or one of its rollup counters.
+     */
+    private void countEvent(EventFields fields, String message, int tagHash, RollupSpec rollup) {
         // Hot path: counter already exists — just increment, no tag materialization
-        Counter counter = counters.get(key);
+        Counter counter = lookupCounter(message, tagHash);
         if (counter != null) {
             counter.increment();
         } else if (!countersSaturated) {
             // Cold path: materialize tags and register counter
-            registerCounter(eventObject, message, key);
+            registerCounter(fields, message, new CacheKey(message, tagHash), rollup);
         } else {
             if (eventsDroppedCounter != null) eventsDroppedCounter.increment();
         }
+    }
+
+    /**
+     * Maps a message logged without arguments (typically built by string concatenation) to its
+     * mined template. Parameterized messages are already templates and are returned unchanged.
+     */
+    private String minedTemplate(ILoggingEvent eventObject, String message) {
+        Object[] args = eventObject.getArgumentArray();
+        if (message == null || (args != null && args.length > 0)) return message;
+        return templateMiner().template(message);
+    }
+
+    private MetricNameSanitizer nameSanitizer() {
+        MetricNameSanitizer sanitizer = nameSanitizer;
+        if (sanitizer == null) {
+            synchronized (this) {
+                sanitizer = nameSanitizer;
+                if (sanitizer == null) {
+                    sanitizer = new MetricNameSanitizer(counterJoinString, maxMetricNameLength);
+                    nameSanitizer = sanitizer;
+                }
+            }
+        }
+        return sanitizer;
+    }
 
-        // Histogram processing
-        if (enableAutoHistograms && !histogramsSaturated) {
-            processHistograms(eventObject, key);
+    private TemplateMiner templateMiner() {
+        TemplateMiner miner = templateMiner;
+        if (miner == null) {
+            synchronized (this) {
+                miner = templateMiner;
+                if (miner == null) {
+                    miner = new TemplateMiner(maxTemplates);
+                    templateMiner = miner;
+                }
+            }
         }
+        return miner;
     }
 
     /**
-     * Computes a hash of all tag-contributing data without allocating any objects.
-     * Combines: MDC properties, structured arguments, logstash markers, level, logger, thread.
+     * Hot-path counter lookup: the thread's lookup cache first (when enabled), then
+     * {@link #lookupSharedCounter}.
      */
-    private int computeTagHash(ILoggingEvent eventObject) {
-        int hash = 17;
+    private Counter lookupCounter(String message, int tagHash) {
+        if (!enableLookupCache) {
+            return lookupSharedCounter(message, tagHash);
+        }
+        Counter cached = lookupCache.get(message, tagHash);
+        if (cached != null) return cached;
+        // Read the epoch first so a removal racing with the shared lookup leaves a stale entry
+        int epoch = lookupCache.epoch();
+        Counter counter = lookupSharedCounter(message, tagHash);
+        if (counter != null) lookupCache.put(message, tagHash, counter, epoch);
+        return counter;
+    }
 
-        // MDC properties
+    /**
+     * Shared counter lookup: the series index first (when enabled), then the counter map.
+     * Map hits are promoted into the index.
+     */
+    private Counter lookupSharedCounter(String message, int tagHash) {
+        if (!enableSeriesIndex) {
+            return counters.get(new CacheKey(message, tagHash));
+        }
+        if (seriesIndex.get(message, tagHash) instanceof Counter indexed) {
+            return indexed;
+        }
+        var key = new CacheKey(message, tagHash);
+        Counter counter = counters.get(key);
+        if (counter != null) indexSeries(key, counter, counters);
+        return counter;
+    }
+
+    /**
+     * Hot-path histogram lookup, see {@link #lookupCounter}.
+     */
+    private DistributionSummary lookupHistogram(String histogramName, int tagHash) {
+        if (!enableSeriesIndex) {
+            return histograms.get(new CacheKey(histogramName, tagHash));
+        }
+        if (seriesIndex.get(histogramName, tagHash) instanceof DistributionSummary indexed) {
+            return indexed;
+        }
+        var key = new CacheKey(histogramName, tagHash);
+        DistributionSummary histogram = histograms.get(key);
+        if (histogram != null) indexSeries(key, histogram, histograms);
+        return histogram;
+    }
+
+    private <M> void indexSeries(CacheKey key, M meter, ConcurrentHashMap<CacheKey, M> source) {
+        seriesIndex.putIfAbsent(key.message(), key.tagHash(), meter);
+        // Undo if the series was removed by re-registration while it was being indexed
+        if (source.get(key) != meter) {
+            seriesIndex.remove(key.message(), key.tagHash(), meter);
+        }
+    }
+
+    /**
+     * Single pass over everything an event contributes, in tag order: MDC properties, structured
+     * arguments, positional arguments, markers at any depth, then the fixed tags. Fills the
+     * tag candidates (and with them the tag hash), numeric values for histograms when
+     * {@code histograms} is set, and gauge values.
+     */
+    private void extractFields(ILoggingEvent eventObject, String template, EventFields fields, boolean histograms) {
+        // 1. MDC properties
         var mdcMap = eventObject.getMDCPropertyMap();
         if (mdcMap != null) {
             for (var entry : mdcMap.entrySet()) {
-                if (isTagKey(entry.getKey())) {
-                    hash = 31 * hash + entry.getKey().hashCode();
-                    hash = 31 * hash + entry.getValue().hashCode();
-                }
+                extractField(fields, template, entry.getKey(), entry.getValue(), histograms);
             }
         }
 
-        // Structured arguments
+        // 2. Structured arguments (from StructuredArguments.kv(), entries(), etc.)
         Object[] args = eventObject.getArgumentArray();
         if (args != null) {
             for (Object arg : args) {
                 if (arg instanceof SingleFieldAppendingMarker sfm) {
-                    String fieldName = sfm.getFieldName();
-                    if (isTagKey(fieldName)) {
-                        hash = 31 * hash + fieldName.hashCode();
-                        hash = 31 * hash + sfm.toString().hashCode();
-                    }
+                    extractField(fields, template, sfm.getFieldName(), fieldValue(sfm), histograms);
+                } else if (arg instanceof MapEntriesAppendingMarker entries) {
+                    extractEntries(fields, template, entries, histograms);
                 }
             }
         }
 
-        // LogstashMarkers — use extractFieldValue to get only each marker's own value
-        Marker marker = eventObject.getMarker();
-        if (marker instanceof SingleFieldAppendingMarker sfm) {
-            if (isTagKey(sfm.getFieldName())) {
-                hash = 31 * hash + sfm.getFieldName().hashCode();
-                hash = 31 * hash + extractFieldValue(sfm).hashCode();
+        // 3. Positional arguments mapped for this template
+        ArgumentRule rule = argumentRule(eventObject.getMessage());
+        if (rule != null) {
+            for (int i = 0; i < rule.tagPositions.length; i++) {
+                Object arg = ArgumentRule.argument(args, rule.tagPositions[i]);
+                if (arg != null && isTagKey(rule.tagKeys[i])) {
+                    ValueNormalizer normalizer = valueNormalizer(rule.tagKeys[i]);
+                    fields.addTag(rule.tagKeys[i], normalizer != null ? normalizer.normalize(arg) : arg);
+                }
             }
-        }
-        if (marker != null && marker.hasReferences()) {
-            Iterator<Marker> iter = marker.iterator();
-            while (iter.hasNext()) {
-                Marker child = iter.next();
-                if (child instanceof SingleFieldAppendingMarker sfm) {
-                    if (isTagKey(sfm.getFieldName())) {
-                        hash = 31 * hash + sfm.getFieldName().hashCode();
-                        hash = 31 * hash + extractFieldValue(sfm).hashCode();
-                    }
+            for (int i = 0; histograms && i < rule.histogramPositions.length; i++) {
+                Object arg = ArgumentRule.argument(args, rule.histogramPositions[i]);
+                if (arg != null && isHistogramKey(rule.histogramKeys[i])) {
+                    addNumber(fields, rule.histogramKeys[i], arg, false);
                 }
             }
         }
 
-        // Fixed tags
-        hash = 31 * hash + eventObject.getLevel().hashCode();
-        hash = 31 * hash + eventObject.getLoggerName().hashCode();
-        hash = 31 * hash + eventObject.getThreadName().hashCode();
+        // 4. LogstashMarkers (from Markers.append(), appendEntries(), etc.)
+        MarkerGraph markers = MarkerGraph.collect(eventObject.getMarker());
+        for (int i = 0; i < markers.size(); i++) {
+            Marker marker = markers.get(i);
+            if (marker instanceof SingleFieldAppendingMarker sfm) {
+                extractField(fields, template, sfm.getFieldName(), fieldValue(sfm), histograms);
+            } else if (marker instanceof MapEntriesAppendingMarker entries) {
+                extractEntries(fields, template, entries, histograms);
+            }
+        }
 
-        return hash;
+        // 5. Fixed tags
+        fields.addTag("level", eventObject.getLevel().toString());
+        fields.addTag("logger_name", eventObject.getLoggerName());
+        fields.addTag("thread_name", eventObject.getThreadName());
+        if (enableExceptionTag || enableRootCauseTag) {
+            IThrowableProxy proxy = eventObject.getThrowableProxy();
+            if (enableExceptionTag) fields.addTag("exception", exceptionClass(proxy));
+            if (enableRootCauseTag) fields.addTag("root_cause", exceptionClass(rootCause(proxy)));
+        }
     }
 
     /**
-     * Cold path: materializes tags and registers a new counter.
+     * Routes one key-value pair: gauge keys to gauge values, any other key to the tags and, when
+     * numeric, to the histogram values, each subject to its whitelist/blacklist.
      */
-    private void registerCounter(ILoggingEvent eventObject, String message, CacheKey key) {
-        if (counters.size() >= maxCounters) {
-            countersSaturated = true;
-            if (eventsDroppedCounter != null) eventsDroppedCounter.increment();
+    private void extractField(EventFields fields, String template, String key, Object value, boolean histograms) {
+        if (key == null || value == null) return;
+        if (gaugeKeySet.contains(key)) {
+            addNumber(fields, key, value, true);
             return;
         }
+        if (isTagKey(key)) {
+            ValueNormalizer normalizer = valueNormalizer(key);
+            if (normalizer != null) {
+                // Normalized keys are tags by configuration, whatever their values look like
+                fields.addTag(key, normalizer.normalize(value));
+            } else if (!isNumericField(template, key, value)) {
+                fields.addTag(key, value);
+            }
+        }
+        if (histograms && isHistogramKey(key)) {
+            addNumber(fields, key, value, false);
+        }
+    }
 
-        List<Tag> tags = buildWhitelistedTags(eventObject);
-        String counterName = buildMetricName(message, counterNameSubfix);
+    private void extractEntries(EventFields fields, String template, MapEntriesAppendingMarker marker, boolean histograms) {
+        fields.entryVisitor.visit(this, fields, template, MarkerValues.entries(marker), histograms);
+    }
 
-        Counter counter = counters.computeIfAbsent(key,
-                k -> {
-                    if (countersCreatedCounter != null) countersCreatedCounter.increment();
-                    return Metrics.counter(counterName, tags);
-                });
-        counter.increment();
+    /**
+     * With numeric field routing, a field carrying numbers is a histogram value rather than a
+     * counter tag. An explicit kvWhitelist always wins.
+     */
+    private boolean isNumericField(String template, String key, Object value) {
+        if (!enableNumericFieldRouting || !kvWhitelistSet.isEmpty()) return false;
+        return template != null
+                ? numericFieldRouter.isNumeric(template, key, value, numericParser())
+                : NumericFieldRouter.looksNumeric(value, numericParser());
+    }
 
-        // Cardinality tracking on cold path only
-        if (enableCardinalityProtection) {
-            trackCardinality(tags);
+    /**
+     * Adds a histogram or gauge value. Numbers are taken as is; anything else is parsed.
+     */
+    private void addNumber(EventFields fields, String key, Object value, boolean gauge) {
+        double number;
+        if (value instanceof Number n) {
+            number = n.doubleValue();
+        } else {
+            NumericParser.Result parsed = fields.parsed;
+            if (numericParser().parse(EventFields.render(value), parsed) == NumericParser.NOT_NUMERIC) return;
+            number = parsed.value;
+        }
+        if (gauge) {
+            fields.addGauge(key, number);
+        } else {
+            fields.addHistogram(key, number);
         }
     }
 
+    private static String exceptionClass(IThrowableProxy proxy) {
+        return proxy != null ? proxy.getClassName() : NO_EXCEPTION;
+    }
+
     /**
-     * Builds the tag list by extracting from MDC, StructuredArguments, and LogstashMarkers.
-     * No JSON encoding/parsing involved.
+     * Follows the cause chain of a throwable proxy. Only class names are read; stack frames are
+     * never touched, so error storms stay cheap.
      */
-    private List<Tag> buildWhitelistedTags(ILoggingEvent eventObject) {
-        var mdcMap = eventObject.getMDCPropertyMap();
-        Object[] args = eventObject.getArgumentArray();
-        int estimatedSize = (mdcMap != null ? mdcMap.size() : 0) + (args != null ? args.length : 0) + 3;
-        var tags = new ArrayList<Tag>(estimatedSize);
+    static IThrowableProxy rootCause(IThrowableProxy proxy) {
+        if (proxy == null) return null;
+        IThrowableProxy root = proxy;
+        for (int depth = 0; depth < MAX_CAUSE_DEPTH; depth++) {
+            IThrowableProxy cause = root.getCause();
+            if (cause == null || cause == root) break;
+            root = cause;
+        }
+        return root;
+    }
 
-        // 1. MDC properties
-        if (mdcMap != null) {
-            for (var entry : mdcMap.entrySet()) {
-                if (isTagKey(entry.getKey())) {
-                    tags.add(Tag.of(entry.getKey(), entry.getValue()));
+    /**
+     * Cold path: registers a new counter, single-flight per key.
+     * Only the thread that claims the pending slot materializes tags and touches the registry;
+     * concurrent misses on the same key are accumulated and replayed into the counter.
+     */
+    private void registerCounter(EventFields fields, String message, CacheKey key, RollupSpec rollup) {
+        // Series still being registered count toward the limit, so queued registrations cannot overshoot it
+        if (counters.size() + pendingCounters.size() >= maxCounters) {
+            countersSaturated = true;
+            if (eventsDroppedCounter != null) eventsDroppedCounter.increment();
+            return;
+        }
+
+        PendingSeries pending = pendingCounters.get(key);
+        if (pending == null) {
+            PendingSeries claim = new PendingSeries(false);
+            pending = pendingCounters.putIfAbsent(key, claim);
+            if (pending == null) {
+                if (counters.size() + pendingCounters.size() > maxCounters) {
+                    // Concurrent claims raced past the check above
+                    pendingCounters.remove(key, claim);
+                    countPendingValuesDropped(claim.complete(null));
+                    countersSaturated = true;
+                    if (eventsDroppedCounter != null) eventsDroppedCounter.increment();
+                    return;
                 }
+                registerClaimedCounter(fields, message, key, rollup, claim);
+                return;
             }
         }
 
-        // 2. Structured arguments (from StructuredArguments.kv(), etc.)
-        if (args != null) {
-            for (Object arg : args) {
-                if (arg instanceof SingleFieldAppendingMarker sfm) {
-                    String fieldName = sfm.getFieldName();
-                    if (isTagKey(fieldName)) {
-                        tags.add(Tag.of(fieldName, extractFieldValue(sfm)));
-                    }
-                }
+        // Another thread is registering this series — record into its pending slot
+        if (!pending.record(1.0)) {
+            Counter counter = counters.get(key);
+            if (counter != null) {
+                counter.increment();
+            } else {
+                // The slot was released or its registration failed
+                countPendingValuesDropped(1);
             }
         }
+    }
 
-        // 3. LogstashMarkers (from Markers.append(), etc.)
-        Marker marker = eventObject.getMarker();
-        extractMarkerTags(marker, tags);
+    private void registerClaimedCounter(EventFields fields, String message, CacheKey key, RollupSpec rollup,
+                                        PendingSeries claim) {
+        // Count this event in the slot — it is replayed into the counter once published
+        claim.record(1.0);
+
+        List<Tag> tags = null;
+        String counterName = null;
+        if (!counters.containsKey(key)) {
+            if (rollup == null) {
+                tags = fields.tags();
+                counterName = buildMetricName(message, counterNameSubfix);
+            } else {
+                tags = rollup.tags(fields);
+                counterName = buildMetricName(message, rollup.name() + '.' + counterNameSubfix);
+            }
+        }
 
-        // 4. Fixed tags
-        tags.add(Tag.of("level", eventObject.getLevel().toString()));
-        tags.add(Tag.of("logger_name", eventObject.getLoggerName()));
-        tags.add(Tag.of("thread_name", eventObject.getThreadName()));
-        return tags;
+        List<Tag> finalTags = tags;
+        String finalName = counterName;
+        submitRegistration(finalName, () -> publishCounter(key, finalName, finalTags, claim));
     }
 
     /**
-     * Extracts tag key-value pairs from a marker and its children.
+     * Registers the counter with Micrometer (if it does not exist yet), publishes it and replays
+     * the pending slot into it. Runs on the background worker when deferred registration is enabled.
      */
-    private void extractMarkerTags(Marker marker, List<Tag> tags) {
-        if (marker == null) return;
-
-        if (marker instanceof SingleFieldAppendingMarker sfm) {
-            if (isTagKey(sfm.getFieldName())) {
-                tags.add(Tag.of(sfm.getFieldName(), extractFieldValue(sfm)));
+    private void publishCounter(CacheKey key, String counterName, List<Tag> tags, PendingSeries claim) {
+        Counter counter = null;
+        try {
+            counter = counters.get(key);
+            if (counter == null && tags != null) {
+                counter = counters.computeIfAbsent(key,
+                        k -> {
+                            if (countersCreatedCounter != null) countersCreatedCounter.increment();
+                            return newCounter(counterName, tags);
+                        });
             }
+        } finally {
+            countPendingValuesDropped(claim.complete(counter != null ? counter::increment : null));
+            pendingCounters.remove(key, claim);
         }
 
-        if (marker.hasReferences()) {
-            Iterator<Marker> iter = marker.iterator();
-            while (iter.hasNext()) {
-                Marker child = iter.next();
-                if (child instanceof SingleFieldAppendingMarker sfm) {
-                    if (isTagKey(sfm.getFieldName())) {
-                        tags.add(Tag.of(sfm.getFieldName(), extractFieldValue(sfm)));
-                    }
+        // Cardinality tracking on cold path only
+        if (tags != null && enableCardinalityProtection) {
+            trackCardinality(tags);
+        }
+    }
+
+    /**
+     * Creates and registers a counter using the configured {@link CounterStorage}.
+     */
+    private Counter newCounter(String name, List<Tag> tags) {
+        if (counterStorage == CounterStorage.MICROMETER) {
+            return Metrics.counter(name, tags);
+        }
+
+        SeriesStore store = seriesStore();
+        SlotCounter handle = new SlotCounter(store, store.allocate());
+        FunctionCounter registered = FunctionCounter.builder(name, handle, SlotCounter::count)
+                .tags(tags)
+                .register(Metrics.globalRegistry);
+        handle.setId(registered.getId());
+
+        // The registry hands back the existing meter for an already-registered id — keep its handle
+        SlotCounter existing = slotCounters.putIfAbsent(registered.getId(), handle);
+        return existing != null ? existing : handle;
+    }
+
+    private SeriesStore seriesStore() {
+        SeriesStore store = seriesStore;
+        if (store == null) {
+            synchronized (slotCounters) {
+                store = seriesStore;
+                if (store == null) {
+                    store = new SeriesStore(counterStorage == CounterStorage.OFF_HEAP);
+                    seriesStore = store;
                 }
             }
         }
+        return store;
+    }
+
+    /**
+     * Runs a meter registration on the background worker when deferred registration is
+     * enabled and the appender is started, otherwise inline on the calling thread.
+     * A failed registration is reported through {@code addError}; on the worker it would
+     * otherwise vanish into the executor's future.
+     */
+    private void submitRegistration(String name, Runnable registration) {
+        Runnable task = () -> {
+            try {
+                registration.run();
+            } catch (RuntimeException e) {
+                addError("Failed to register meter '" + name + "'", e);
+            }
+        };
+        ScheduledExecutorService executor = backgroundExecutor;
+        if (enableDeferredRegistration && executor != null) {
+            try {
+                executor.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                // Appender is stopping — fall through and register inline
+            }
+        }
+        task.run();
+    }
+
+    /**
+     * The value of a single-field marker: the object held by an {@link ObjectAppendingMarker}
+     * (see {@link MarkerValues}), otherwise the rendered value.
+     */
+    private Object fieldValue(SingleFieldAppendingMarker marker) {
+        if (marker instanceof ObjectAppendingMarker oam) {
+            Object value = MarkerValues.value(oam);
+            if (value != null) return value;
+        }
+        return extractFieldValue(marker);
     }
 
     /**
@@ -402,6 +1055,9 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
      * Single-pass character loop: removes dots, replaces spaces with counterJoinString.
      */
     private String buildMetricName(String message, String suffix) {
+        if (enableNameSanitizer) {
+            return counterNamePrefix + '.' + nameSanitizer().sanitize(message) + '.' + suffix;
+        }
         var sb = new StringBuilder(counterNamePrefix.length() + message.length() + suffix.length() + 2);
         sb.append(counterNamePrefix).append('.');
         for (int i = 0; i < message.length(); i++) {
@@ -415,15 +1071,34 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
     }
 
     private boolean isTagKey(String key) {
+        // Levels such as queue depths would explode tag cardinality
+        if (gaugeKeySet.contains(key)) return false;
+
         // Cardinality protection gate-check (NOT applied to histograms)
         if (enableCardinalityProtection && autoBlacklistedKeys.contains(key)) {
             return false;
         }
 
-        if (!kvWhitelistSet.isEmpty()) {
-            return kvWhitelistSet.contains(key) && !kvBlacklistSet.contains(key);
+        return kvFilter().accepts(key);
+    }
+
+    private KeyFilter kvFilter() {
+        KeyFilter filter = kvFilter;
+        if (filter == null) {
+            // Not started (or keys added since): compile on first use
+            filter = KeyFilter.compile(kvWhitelistSet, kvBlacklistSet, this::addError);
+            kvFilter = filter;
+        }
+        return filter;
+    }
+
+    private KeyFilter histogramKvFilter() {
+        KeyFilter filter = histogramKvFilter;
+        if (filter == null) {
+            filter = KeyFilter.compile(histogramKvWhitelistSet, histogramKvBlacklistSet, this::addError);
+            histogramKvFilter = filter;
         }
-        return !kvBlacklistSet.contains(key);
+        return filter;
     }
 
     /**
@@ -438,8 +1113,12 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
             // Skip fixed tags — they have bounded cardinality
             if (FIXED_TAG_KEYS.contains(key)) continue;
 
-            // Skip already-blacklisted keys
-            if (autoBlacklistedKeys.contains(key)) continue;
+            if (autoBlacklistedKeys.contains(key)) {
+                // Built from an event read before the key was blacklisted, e.g. the rollup counter
+                // of the event that blacklisted it: move it onto the series without the key
+                reRegisterCountersWithoutKey(key);
+                continue;
+            }
 
             Set<String> values = cardinalityTracker.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet());
             values.add(tag.getValue());
@@ -490,9 +1169,18 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
 
                     // Remove from our map FIRST
                     counters.remove(entry.getKey());
+                    if (enableSeriesIndex) {
+                        seriesIndex.remove(entry.getKey().message(), entry.getKey().tagHash(), oldCounter);
+                    }
+                    if (enableLookupCache) {
+                        lookupCache.invalidate();
+                    }
 
                     // Remove from Micrometer registry
                     Metrics.globalRegistry.remove(oldCounter);
+                    if (oldCounter instanceof SlotCounter slotCounter) {
+                        slotCounters.remove(slotCounter.getId(), slotCounter);
+                    }
 
                     // Build new tags without the blacklisted key
                     List<Tag> newTags = new ArrayList<>();
@@ -503,14 +1191,15 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
                     }
 
                     String name = oldCounter.getId().getName();
+                    String message = entry.getKey().message();
 
-                    // Compute a new CacheKey using the tag hash from the new tags
-                    int newTagHash = computeTagHashFromTags(newTags);
-                    CacheKey newKey = new CacheKey(name.substring(counterNamePrefix.length() + 1,
-                            name.length() - counterNameSubfix.length() - 1), newTagHash);
+                    // Compute a new CacheKey with the hash the hot path now computes for these tags
+                    RollupSpec rollup = rollupOf(message, name);
+                    int newTagHash = rollup != null ? rollup.hash(newTags) : computeTagHashFromTags(newTags);
+                    CacheKey newKey = new CacheKey(message, newTagHash);
 
                     Counter newCounter = counters.computeIfAbsent(newKey,
-                            k -> Metrics.counter(name, newTags));
+                            k -> newCounter(name, newTags));
                     // Transfer the snapshotted count
                     if (count > 0) {
                         newCounter.increment(count);
@@ -526,6 +1215,18 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
         }
     }
 
+    /**
+     * The rollup a counter was registered for, recognized by its name, or {@code null} for a
+     * detailed counter. Rollup names hold no dots, so they cannot pass for part of a template.
+     */
+    private RollupSpec rollupOf(String message, String counterName) {
+        if (rollups.isEmpty()) return null;
+        for (RollupSpec rollup : rollupSpecs()) {
+            if (counterName.equals(buildMetricName(message, rollup.name() + '.' + counterNameSubfix))) return rollup;
+        }
+        return null;
+    }
+
     /**
      * Computes a tag hash from a materialized list of tags (used by re-registration).
      */
@@ -539,120 +1240,296 @@ public class LogbackToMetricsAppender extends UnsynchronizedAppenderBase<ILoggin
     }
 
     /**
-     * Processes histograms for numeric values from MDC, structured arguments, and markers.
+     * Records a histogram value. Tags are only materialized on the cold path (first encounter of this series).
      */
-    private void processHistograms(ILoggingEvent eventObject, CacheKey counterKey) {
-        String message = eventObject.getMessage();
+    private void recordHistogramValue(String key, double numericValue, String message, int tagHash, EventFields fields) {
+        String histogramName = buildMetricName(message, key + "." + histogramNameSubfix);
+        DistributionSummary histogram = lookupHistogram(histogramName, tagHash);
+        if (histogram != null) {
+            histogram.record(numericValue);
+            return;
+        }
+        if (histograms.size() + pendingHistograms.size() >= maxHistograms) {
+            histogramsSaturated = true;
+            return;
+        }
+        registerHistogram(histogramName, key, new CacheKey(histogramName, tagHash), numericValue, fields);
+    }
 
-        // MDC properties
-        var mdcMap = eventObject.getMDCPropertyMap();
-        if (mdcMap != null) {
-            for (var entry : mdcMap.entrySet()) {
-                if (isHistogramKey(entry.getKey())) {
-                    recordHistogramFromString(entry.getKey(), entry.getValue(), message, counterKey, eventObject);
+    /**
+     * Cold path: registers a new histogram, single-flight per key (see {@link #registerCounter}).
+     */
+    private void registerHistogram(String histogramName, String key, CacheKey histKey, double value, EventFields fields) {
+        PendingSeries pending = pendingHistograms.get(histKey);
+        if (pending == null) {
+            PendingSeries claim = new PendingSeries(true);
+            pending = pendingHistograms.putIfAbsent(histKey, claim);
+            if (pending == null) {
+                if (histograms.size() + pendingHistograms.size() > maxHistograms) {
+                    // Concurrent claims raced past the check in recordHistogramValue
+                    pendingHistograms.remove(histKey, claim);
+                    countPendingValuesDropped(claim.complete(null));
+                    histogramsSaturated = true;
+                    return;
                 }
+                claim.record(value);
+                // Materialize tags for histogram registration
+                List<Tag> tags = histograms.containsKey(histKey) ? null : fields.tags();
+                submitRegistration(histogramName, () -> publishHistogram(histogramName, key, histKey, tags, claim));
+                return;
             }
         }
 
-        // Structured arguments — can extract native Number values
-        Object[] args = eventObject.getArgumentArray();
-        if (args != null) {
-            for (Object arg : args) {
-                if (arg instanceof SingleFieldAppendingMarker sfm) {
-                    String fieldName = sfm.getFieldName();
-                    if (isHistogramKey(fieldName)) {
-                        recordHistogramFromMarker(sfm, message, counterKey, eventObject);
-                    }
-                }
+        if (!pending.record(value)) {
+            DistributionSummary histogram = histograms.get(histKey);
+            if (histogram != null) {
+                histogram.record(value);
+            } else {
+                countPendingValuesDropped(1);
             }
         }
+    }
 
-        // LogstashMarkers
-        Marker marker = eventObject.getMarker();
-        if (marker != null) {
-            extractHistogramFromMarker(marker, message, counterKey, eventObject);
+    private void publishHistogram(String histogramName, String key, CacheKey histKey, List<Tag> tags, PendingSeries claim) {
+        DistributionSummary histogram = null;
+        try {
+            histogram = histograms.get(histKey);
+            if (histogram == null && tags != null) {
+                histogram = histograms.computeIfAbsent(histKey,
+                        k -> {
+                            if (histogramsCreatedCounter != null) histogramsCreatedCounter.increment();
+                            DistributionSummary summary = newHistogram(histogramName, key, tags);
+                            return enableHistogramBatching ? histogramBatcher.wrap(summary) : summary;
+                        });
+            }
+        } finally {
+            countPendingValuesDropped(claim.complete(histogram != null ? histogram::record : null));
+            pendingHistograms.remove(histKey, claim);
         }
     }
 
-    private void extractHistogramFromMarker(Marker marker, String message, CacheKey counterKey, ILoggingEvent eventObject) {
-        if (marker instanceof SingleFieldAppendingMarker sfm) {
-            if (isHistogramKey(sfm.getFieldName())) {
-                recordHistogramFromMarker(sfm, message, counterKey, eventObject);
-            }
+    private void countPendingValuesDropped(int lost) {
+        if (lost > 0 && pendingValuesDroppedCounter != null) pendingValuesDroppedCounter.increment(lost);
+    }
+
+    /**
+     * Registers the meter for a histogram series using the field's compiled settings.
+     * Timer fields are always Micrometer timers, whatever the histogram backend.
+     */
+    private DistributionSummary newHistogram(String name, String key, List<Tag> tags) {
+        HistogramSpec spec = histogramSpec(key);
+        if (histogramBackend == HistogramBackend.SKETCH && !spec.isTimer()) {
+            return SketchSummary.register(name, tags, spec.sketchPercentiles(), Metrics.globalRegistry);
         }
-        if (marker.hasReferences()) {
-            Iterator<Marker> iter = marker.iterator();
-            while (iter.hasNext()) {
-                Marker child = iter.next();
-                if (child instanceof SingleFieldAppendingMarker sfm) {
-                    if (isHistogramKey(sfm.getFieldName())) {
-                        recordHistogramFromMarker(sfm, message, counterKey, eventObject);
-                    }
-                }
-            }
+        if (histogramBackend == HistogramBackend.TIERED && !spec.isTimer()) {
+            return TieredSummary.register(name, tags, histogramPromotionRate,
+                    () -> spec.register(name, tags, Metrics.globalRegistry),
+                    promotion -> submitRegistration(name, () -> promoteHistogram(name, promotion)),
+                    Metrics.globalRegistry);
+        }
+        return spec.register(name, tags, Metrics.globalRegistry);
+    }
+
+    /**
+     * Runs a tiered histogram promotion. A failed promotion leaves the series in tier one.
+     */
+    private void promoteHistogram(String name, Runnable promotion) {
+        try {
+            promotion.run();
+        } catch (RuntimeException e) {
+            addError("Failed to promote histogram '" + name + "'", e);
         }
     }
 
-    private void recordHistogramFromMarker(SingleFieldAppendingMarker marker, String message, CacheKey counterKey, ILoggingEvent eventObject) {
-        String value = extractFieldValue(marker);
-        recordHistogramFromString(marker.getFieldName(), value, message, counterKey, eventObject);
+    private HistogramSpec histogramSpec(String key) {
+        Map<String, HistogramSpec> specs = histogramSpecs;
+        if (specs == null) {
+            // Not started (or fields added since): compile on this cold path
+            specs = compileHistogramSpecs();
+            histogramSpecs = specs;
+        }
+        HistogramSpec spec = specs.get(key);
+        if (spec == null && enableTimerSuffixes) {
+            spec = HistogramSpec.forSuffix(key);
+        }
+        return spec != null ? spec : HistogramSpec.DEFAULT;
     }
 
     /**
-     * Records a histogram value from a string, with fast numeric pre-check.
-     * Tags are only materialized on the cold path (first encounter of this histogram key).
+     * Compiled argument rule for a message template, or {@code null} if none is configured.
      */
-    private void recordHistogramFromString(String key, String value, String message, CacheKey counterKey, ILoggingEvent eventObject) {
-        Double numericValue = parseNumericValue(value);
-        if (numericValue == null) return;
+    private ArgumentRule argumentRule(String message) {
+        if (argumentMappings.isEmpty() || message == null) return null;
+        Map<String, ArgumentRule> rules = argumentRules;
+        if (rules == null) {
+            // Not started (or mappings added since): compile once here
+            rules = compileArgumentRules();
+            argumentRules = rules;
+        }
+        return rules.get(message);
+    }
 
-        String histogramName = buildMetricName(message, key + "." + histogramNameSubfix);
-        var histKey = new CacheKey(histogramName, counterKey.tagHash());
+    /**
+     * Compiled normalizer chain for a tag key, or {@code null} if none is configured.
+     */
+    private ValueNormalizer valueNormalizer(String key) {
+        if (tagNormalizers.isEmpty()) return null;
+        Map<String, ValueNormalizer> normalizers = valueNormalizers;
+        if (normalizers == null) {
+            // Not started (or steps added since): compile once here
+            normalizers = compileValueNormalizers();
+            valueNormalizers = normalizers;
+        }
+        return normalizers.get(key);
+    }
 
-        DistributionSummary histogram = histograms.get(histKey);
-        if (histogram == null) {
-            if (histograms.size() >= maxHistograms) {
-                histogramsSaturated = true;
-                return;
+    private RollupSpec[] rollupSpecs() {
+        RollupSpec[] specs = rollupSpecs;
+        if (specs == null) {
+            // Not started (or rollups added since): compile on first use
+            specs = compileRollups();
+            rollupSpecs = specs;
+        }
+        return specs;
+    }
+
+    private RollupSpec[] compileRollups() {
+        Map<String, RollupSpec> specs = new LinkedHashMap<>();
+        for (Rollup rollup : rollups) {
+            try {
+                RollupSpec spec = RollupSpec.compile(rollup);
+                if (specs.putIfAbsent(spec.name(), spec) != null) {
+                    addError("Duplicate rollup '" + spec.name() + "' is ignored");
+                }
+            } catch (IllegalArgumentException e) {
+                addError("Invalid rollup: " + e.getMessage());
+            }
+        }
+        return specs.values().toArray(new RollupSpec[0]);
+    }
+
+    private NumericParser numericParser() {
+        NumericParser parser = numericParser;
+        if (parser == null) {
+            // Not started (or unit settings changed since): compile on first use
+            parser = compileNumericParser();
+            numericParser = parser;
+        }
+        return parser;
+    }
+
+    private NumericParser compileNumericParser() {
+        if (!enableUnitParsing) return NumericParser.DECIMAL;
+        try {
+            return NumericParser.withUnits(timeBaseUnit, sizeBaseUnit);
+        } catch (IllegalArgumentException e) {
+            addError("Invalid base unit, unit parsing disabled: " + e.getMessage());
+            return NumericParser.DECIMAL;
+        }
+    }
+
+    private Map<String, ValueNormalizer> compileValueNormalizers() {
+        Map<String, ValueNormalizer> normalizers = new HashMap<>();
+        for (TagNormalizer normalizer : tagNormalizers) {
+            if (normalizer.getKey() == null) {
+                addError("tagNormalizer without a key is ignored");
+                continue;
+            }
+            try {
+                var step = ValueNormalizer.compile(normalizer);
+                normalizers.merge(normalizer.getKey(), ValueNormalizer.of(step), (chain, next) -> chain.then(step));
+            } catch (IllegalArgumentException e) {
+                addError("Invalid tagNormalizer for '" + normalizer.getKey() + "': " + e.getMessage());
             }
-            // Cold path: materialize tags for histogram registration
-            List<Tag> tags = buildWhitelistedTags(eventObject);
-            histogram = histograms.computeIfAbsent(histKey,
-                    k -> {
-                        if (histogramsCreatedCounter != null) histogramsCreatedCounter.increment();
-                        return DistributionSummary.builder(histogramName)
-                                .tags(tags)
-                                .register(Metrics.globalRegistry);
-                    });
         }
-        histogram.record(numericValue);
+        return normalizers;
+    }
+
+    private Map<String, ArgumentRule> compileArgumentRules() {
+        Map<String, ArgumentRule> rules = new HashMap<>();
+        for (ArgumentMapping mapping : argumentMappings) {
+            if (mapping.getTemplate() == null) {
+                addError("argumentMapping without a template is ignored");
+                continue;
+            }
+            try {
+                rules.put(mapping.getTemplate(), ArgumentRule.compile(mapping));
+            } catch (IllegalArgumentException e) {
+                addError("Invalid argumentMapping for '" + mapping.getTemplate() + "': " + e.getMessage());
+            }
+        }
+        return rules;
+    }
+
+    private Map<String, HistogramSpec> compileHistogramSpecs() {
+        Map<String, HistogramSpec> specs = new HashMap<>();
+        for (HistogramField field : histogramFields) {
+            if (field.getName() == null) {
+                addError("histogramField without a name is ignored");
+                continue;
+            }
+            try {
+                specs.put(field.getName(), HistogramSpec.compile(field, enableTimerSuffixes));
+            } catch (IllegalArgumentException e) {
+                addError("Invalid histogramField " + field.getName() + ": " + e.getMessage());
+            }
+        }
+        return specs;
     }
 
     private boolean isHistogramKey(String key) {
-        if (!histogramKvWhitelistSet.isEmpty()) {
-            return histogramKvWhitelistSet.contains(key) && !histogramKvBlacklistSet.contains(key);
+        if (gaugeKeySet.contains(key)) return false;
+        return histogramKvFilter().accepts(key);
+    }
+
+    private void recordGauge(String key, double value, String message, int tagHash, EventFields fields) {
+        String gaugeName = buildMetricName(message, key + "." + gaugeNameSubfix);
+        var gaugeKey = new CacheKey(gaugeName, tagHash);
+        GaugeSlot slot = gauges.get(gaugeKey);
+        if (slot == null) {
+            slot = registerGauge(gaugeName, gaugeKey, fields);
+            if (slot == null) return;
         }
-        return !histogramKvBlacklistSet.contains(key);
+        slot.update(value);
     }
 
     /**
-     * Fast numeric pre-check + parse. Avoids NumberFormatException stack traces
-     * for obviously non-numeric strings.
+     * Cold path: registers a new gauge, single-flight per key (see {@link #registerCounter}).
+     * The claimed slot is returned right away and takes values while its meters are registered,
+     * on the background worker when deferred registration is enabled.
+     *
+     * @return the slot to update, or {@code null} once {@code maxGauges} is reached
      */
-    private static Double parseNumericValue(String value) {
-        if (value == null || value.isEmpty()) return null;
-
-        // Fast pre-check: first char must be digit, minus, or dot
-        char first = value.charAt(0);
-        if (first != '-' && first != '.' && (first < '0' || first > '9')) return null;
+    private GaugeSlot registerGauge(String gaugeName, CacheKey gaugeKey, EventFields fields) {
+        GaugeSlot pending = pendingGauges.get(gaugeKey);
+        if (pending != null) return pending;
+        if (gauges.size() + pendingGauges.size() >= maxGauges) return null;
+
+        var claim = new GaugeSlot(enableGaugeMinMax ? gaugeIntervalMillis : 0L);
+        pending = pendingGauges.putIfAbsent(gaugeKey, claim);
+        if (pending != null) return pending;
+        GaugeSlot published = gauges.get(gaugeKey);
+        if (published != null) {
+            // Published between our lookup and the claim
+            pendingGauges.remove(gaugeKey, claim);
+            return published;
+        }
 
-        // Also reject whitespace-only (trim only if it passed the first-char check)
-        if (value.isBlank()) return null;
+        List<Tag> tags = fields.tags();
+        submitRegistration(gaugeName, () -> publishGauge(gaugeKey, gaugeName, tags, claim));
+        return claim;
+    }
 
+    private void publishGauge(CacheKey key, String name, List<Tag> tags, GaugeSlot slot) {
         try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            return null;
+            Gauge.builder(name, slot, GaugeSlot::last).tags(tags).register(Metrics.globalRegistry);
+            if (enableGaugeMinMax) {
+                Gauge.builder(name + ".min", slot, GaugeSlot::min).tags(tags).register(Metrics.globalRegistry);
+                Gauge.builder(name + ".max", slot, GaugeSlot::max).tags(tags).register(Metrics.globalRegistry);
+            }
+            gauges.put(key, slot);
+        } finally {
+            pendingGauges.remove(key, slot);
         }
     }
 }
@@ -0,0 +1,108 @@
+package io.github.dordor12;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small direct-mapped cache from (template identity, tag hash) to a meter handle, private to
+ * each platform thread and checked before the shared series lookup.
+ * <p>
+ * Entries are immutable and stamped with the cache epoch that was current before the shared
+ * lookup that produced them. {@link #invalidate()} bumps the epoch, so every entry cached before
+ * a series was removed is treated as a miss from then on; callers must invalidate <em>after</em>
+ * removing the series from the authoritative map.
+ * <p>
+ * Virtual threads are too numerous for per-thread tables, so they share one bounded table of
+ * {@value #SHARED_SLOTS} slots. Slots are overwritten racily; that is safe because entries are
+ * immutable (final fields) and a lost write only costs a miss.
+ */
+final class LookupCache<V> {
+    static final int THREAD_SLOTS = 64;
+    static final int SHARED_SLOTS = 1024;
+
+    // Thread.isVirtual() exists from Java 21 on; older runtimes only have platform threads
+    private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+    private static final class Entry {
+        final String template;
+        final int tagHash;
+        final int epoch;
+        final Object handle;
+
+        Entry(String template, int tagHash, int epoch, Object handle) {
+            this.template = template;
+            this.tagHash = tagHash;
+            this.epoch = epoch;
+            this.handle = handle;
+        }
+    }
+
+    private final AtomicInteger epoch = new AtomicInteger();
+    private final ThreadLocal<Entry[]> threadSlots = ThreadLocal.withInitial(() -> new Entry[THREAD_SLOTS]);
+    private final Entry[] sharedSlots = new Entry[SHARED_SLOTS];
+
+    private static MethodHandle findIsVirtual() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) return false;
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    private Entry[] slots() {
+        return isVirtual(Thread.currentThread()) ? sharedSlots : threadSlots.get();
+    }
+
+    private static int slot(String template, int tagHash, int mask) {
+        int h = System.identityHashCode(template) * 0x9E3779B9 ^ tagHash;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Returns the cached handle for this exact template instance and tag hash, or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    V get(String template, int tagHash) {
+        Entry[] slots = slots();
+        Entry entry = slots[slot(template, tagHash, slots.length - 1)];
+        if (entry != null && entry.template == template && entry.tagHash == tagHash
+                && entry.epoch == epoch.get()) {
+            return (V) entry.handle;
+        }
+        return null;
+    }
+
+    /**
+     * Current epoch; read it before the shared lookup whose result is passed to {@link #put}.
+     */
+    int epoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Caches a handle found by a shared lookup that started at {@code observedEpoch}.
+     * If the cache was invalidated since, the entry is stored already stale.
+     */
+    void put(String template, int tagHash, V handle, int observedEpoch) {
+        Entry[] slots = slots();
+        slots[slot(template, tagHash, slots.length - 1)] = new Entry(template, tagHash, observedEpoch, handle);
+    }
+
+    /**
+     * Invalidates every entry cached so far, in all threads.
+     */
+    void invalidate() {
+        epoch.incrementAndGet();
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.dordor12;
+
+import net.logstash.logback.marker.LogstashMarker;
+import org.slf4j.Marker;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Per-thread flattening of an event's marker graph: the root marker and everything reachable
+ * through its references, at any depth, each marker once.
+ * <p>
+ * The graph is walked breadth-first over a reusable array, so the root comes first and its
+ * direct references next, as before. A marker already in the array is skipped by identity,
+ * which makes cycles and shared references harmless, and at most {@value #MAX_MARKERS} markers
+ * are collected. Logstash markers keep their references in a copy-on-write list that is read
+ * by index, so a walk allocates nothing; other marker implementations fall back to their
+ * iterator.
+ */
+final class MarkerGraph {
+    static final int MAX_MARKERS = 256;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // LogstashBasicMarker is package-private; its reference list is read through a getter
+    private static final MethodHandle REFERENCES = MarkerValues.getter(LogstashMarker.class.getSuperclass(), List.class);
+    private static final ThreadLocal<MarkerGraph> CURRENT = ThreadLocal.withInitial(MarkerGraph::new);
+
+    private Marker[] markers = new Marker[INITIAL_CAPACITY];
+    private int size;
+
+    private MarkerGraph() {
+    }
+
+    /**
+     * Walks the graph under {@code root} into this thread's graph.
+     */
+    static MarkerGraph collect(Marker root) {
+        MarkerGraph graph = CURRENT.get();
+        graph.walk(root);
+        return graph;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Marker get(int index) {
+        return markers[index];
+    }
+
+    private void walk(Marker start) {
+        int previous = size;
+        size = 0;
+        if (start != null) {
+            markers[size++] = start;
+            for (int i = 0; i < size && size < MAX_MARKERS; i++) {
+                Marker marker = markers[i];
+                if (marker.hasReferences()) addReferences(marker);
+            }
+        }
+        // Do not keep markers of earlier events reachable
+        for (int i = size; i < previous; i++) {
+            markers[i] = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addReferences(Marker marker) {
+        List<Marker> references = null;
+        if (REFERENCES != null && marker instanceof LogstashMarker) {
+            try {
+                references = (List<Marker>) REFERENCES.invoke(marker);
+            } catch (Throwable e) {
+                // Fall back to the iterator
+            }
+        }
+        if (references != null) {
+            // Copy-on-write list: indexed reads, no iterator
+            try {
+                for (int i = 0; i < references.size(); i++) {
+                    if (!add(references.get(i))) return;
+                }
+            } catch (IndexOutOfBoundsException e) {
+                // A reference was removed concurrently; keep what was collected
+            }
+            return;
+        }
+        Iterator<Marker> iter = marker.iterator();
+        while (iter.hasNext()) {
+            if (!add(iter.next())) return;
+        }
+    }
+
+    /**
+     * Appends a marker unless already present; returns {@code false} once the graph is full.
+     */
+    private boolean add(Marker marker) {
+        if (size >= MAX_MARKERS) return false;
+        for (int i = 0; i < size; i++) {
+            if (markers[i] == marker) return true;
+        }
+        if (size == markers.length) {
+            markers = Arrays.copyOf(markers, Math.min(markers.length * 2, MAX_MARKERS));
+        }
+        markers[size++] = marker;
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.dordor12;
+
+import net.logstash.logback.marker.MapEntriesAppendingMarker;
+import net.logstash.logback.marker.ObjectAppendingMarker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Reads the raw values held by logstash markers that expose them only to their JSON writer.
+ * <p>
+ * {@link MapEntriesAppendingMarker} (from {@code StructuredArguments.entries(map)} and
+ * {@code Markers.appendEntries(map)}) keeps its map in a private field, and
+ * {@link ObjectAppendingMarker} its value behind a protected getter. Both are read through
+ * getters resolved once per class, so no string is rendered and parsed back. If a field cannot
+ * be accessed (a different encoder version, or a module that does not open the package), map
+ * markers read as empty and object markers as {@code null}, and callers fall back to
+ * {@code toString()}.
+ */
+final class MarkerValues {
+    private static final MethodHandle MAP_ENTRIES = getter(MapEntriesAppendingMarker.class, Map.class);
+    private static final MethodHandle OBJECT_VALUE = getter(ObjectAppendingMarker.class, Object.class);
+
+    private MarkerValues() {
+    }
+
+    /**
+     * The map behind an entries marker; never {@code null}.
+     */
+    static Map<?, ?> entries(MapEntriesAppendingMarker marker) {
+        if (MAP_ENTRIES != null) {
+            try {
+                Map<?, ?> map = (Map<?, ?>) MAP_ENTRIES.invoke(marker);
+                if (map != null) return map;
+            } catch (Throwable e) {
+                // Fall through to the empty map
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * The object held by an object marker, or {@code null} if it is null or cannot be read.
+     */
+    static Object value(ObjectAppendingMarker marker) {
+        if (OBJECT_VALUE == null) return null;
+        try {
+            return OBJECT_VALUE.invoke(marker);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resolves a getter for the single instance field of the given type, or {@code null}.
+     */
+    static MethodHandle getter(Class<?> owner, Class<?> type) {
+        try {
+            for (Field field : owner.getDeclaredFields()) {
+                if (field.getType() == type && !Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    return MethodHandles.lookup().unreflectGetter(field);
+                }
+            }
+        } catch (RuntimeException | IllegalAccessException e) {
+            // Inaccessible: callers fall back to toString()
+        }
+        return null;
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.dordor12;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps raw message templates to canonical, backend-valid metric name segments, once per template.
+ * <p>
+ * ASCII letters, digits and underscores are kept; every other run of characters (spaces,
+ * {@code {}} placeholders, punctuation, quotes, slashes, non-ASCII) becomes a single join string,
+ * and leading/trailing separators are dropped. The result therefore survives Prometheus-style
+ * naming conventions unchanged.
+ * <p>
+ * A name depends only on its own template, never on which templates were seen before, so every
+ * pod and every restart agrees on it. A template made of valid words separated by single spaces
+ * maps to a segment that can be mapped back to it, and keeps the plain segment. Any other
+ * template (dropped characters, segments longer than {@code maxLength}, which are truncated) gets
+ * the raw template's hash appended, so it cannot share a series name with another template short
+ * of a 32-bit hash collision.
+ * <p>
+ * Results are cached by template; a literal template hits by identity in {@code String.equals}.
+ * At most {@value #MAX_CACHED_TEMPLATES} templates are cached; further templates are sanitized on
+ * every call, to the same name.
+ */
+final class MetricNameSanitizer {
+    static final int MAX_CACHED_TEMPLATES = 100_000;
+    private static final String EMPTY_NAME = "empty";
+
+    private final String joinString;
+    private final int maxLength;
+    private final ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+
+    MetricNameSanitizer(String joinString, int maxLength) {
+        this.joinString = joinString;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns the name segment for a template.
+     */
+    String sanitize(String template) {
+        String name = cache.get(template);
+        if (name != null) return name;
+        name = canonical(template);
+        if (cache.size() < MAX_CACHED_TEMPLATES) {
+            String previous = cache.putIfAbsent(template, name);
+            if (previous != null) return previous;
+        }
+        return name;
+    }
+
+    private String canonical(String template) {
+        var sb = new StringBuilder(template.length());
+        boolean pendingSeparator = false;
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+            if (!valid) {
+                pendingSeparator = sb.length() > 0;
+                continue;
+            }
+            if (pendingSeparator) {
+                sb.append(joinString);
+                pendingSeparator = false;
+            }
+            sb.append(c);
+        }
+        if (sb.length() == 0) sb.append(EMPTY_NAME);
+        if (sb.length() > maxLength) {
+            // Truncated names are disambiguated by the hash of the full template
+            return sb.substring(0, maxLength) + joinString + hash(template);
+        }
+        String name = sb.toString();
+        return reversible(template, name) ? name : name + joinString + hash(template);
+    }
+
+    /**
+     * Whether the template is recovered by turning each join string back into a space. Only one
+     * template maps to such a name, so it needs no suffix.
+     */
+    private boolean reversible(String template, String name) {
+        return joinString.isEmpty() ? name.equals(template) : name.replace(joinString, " ").equals(template);
+    }
+
+    private static String hash(String template) {
+        return String.format("%08x", template.hashCode());
+    }
+}
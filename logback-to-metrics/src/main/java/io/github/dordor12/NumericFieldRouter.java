@@ -0,0 +1,78 @@
+package io.github.dordor12;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides per (template, key) whether a field carries numbers, so numeric fields such as
+ * {@code response_time_ms} are kept out of counter tags.
+ * <p>
+ * A field starts out undecided. While undecided, every numeric-looking value is reported as
+ * numeric and every other value as text. The first non-numeric value settles the field as
+ * text for good (e.g. a {@code status} that is sometimes {@code OK}). After
+ * {@value #OBSERVATIONS} numeric values in a row, the field is settled as numeric. Once settled,
+ * a lookup is two map reads and the value is no longer inspected.
+ * <p>
+ * At most {@value #MAX_TEMPLATES} templates and {@value #MAX_KEYS_PER_TEMPLATE} keys per
+ * template are remembered. Fields beyond those bounds are judged value by value.
+ */
+final class NumericFieldRouter {
+    static final int OBSERVATIONS = 4;
+    static final int MAX_TEMPLATES = 10_000;
+    static final int MAX_KEYS_PER_TEMPLATE = 256;
+
+    private static final int TEXT = -1;
+    private static final int NUMERIC = -2;
+
+    // template -> key -> numeric values seen so far, or TEXT/NUMERIC once settled
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicInteger>> fields = new ConcurrentHashMap<>();
+
+    /**
+     * Whether the field should be treated as numeric for this value.
+     */
+    boolean isNumeric(String template, String key, Object value, NumericParser parser) {
+        AtomicInteger state = state(template, key);
+        if (state == null) return looksNumeric(value, parser);
+
+        while (true) {
+            int observed = state.get();
+            if (observed == NUMERIC) return true;
+            if (observed == TEXT) return false;
+            boolean numeric = looksNumeric(value, parser);
+            int next = !numeric ? TEXT : observed + 1 >= OBSERVATIONS ? NUMERIC : observed + 1;
+            if (state.compareAndSet(observed, next)) return numeric;
+        }
+    }
+
+    /**
+     * Number of fields settled as numeric.
+     */
+    int numericFields() {
+        int count = 0;
+        for (var keys : fields.values()) {
+            for (AtomicInteger state : keys.values()) {
+                if (state.get() == NUMERIC) count++;
+            }
+        }
+        return count;
+    }
+
+    private AtomicInteger state(String template, String key) {
+        ConcurrentHashMap<String, AtomicInteger> keys = fields.get(template);
+        if (keys == null) {
+            if (fields.size() >= MAX_TEMPLATES) return null;
+            keys = fields.computeIfAbsent(template, t -> new ConcurrentHashMap<>());
+        }
+        AtomicInteger state = keys.get(key);
+        if (state == null) {
+            if (keys.size() >= MAX_KEYS_PER_TEMPLATE) return null;
+            state = keys.computeIfAbsent(key, k -> new AtomicInteger());
+        }
+        return state;
+    }
+
+    static boolean looksNumeric(Object value, NumericParser parser) {
+        if (value instanceof Number) return true;
+        return value instanceof String s && parser.isNumeric(s);
+    }
+}
@@ -0,0 +1,214 @@
+package io.github.dordor12;
+
+/**
+ * Allocation-free parser for numeric field values such as {@code 42}, {@code -0.5} or {@code 1e3}.
+ * <p>
+ * Digits are accumulated into a long mantissa and a decimal exponent in one pass. When the
+ * mantissa fits in 53 bits and the exponent is within ±22, both are exact doubles and a single
+ * multiplication or division gives the correctly rounded result, which covers nearly every logged
+ * value. Longer values fall back to {@link Double#parseDouble}. Non-numeric text is rejected on
+ * its first unexpected character, without an exception.
+ * <p>
+ * With units, thousands separators ({@code 1,024}) and a unit suffix, optionally after one space,
+ * are accepted. Time units ({@code ns}, {@code us}, {@code µs}, {@code ms}, {@code s},
+ * {@code min}, {@code h}) are scaled to the time base unit; size units ({@code B}, {@code KB},
+ * {@code MB}, {@code GB}, {@code TB} and the {@code KiB} forms, all powers of 1024 as in
+ * logback's {@code FileSize}, case-insensitive) to the size base unit. A value with any other
+ * suffix is not numeric.
+ */
+final class NumericParser {
+    static final int NOT_NUMERIC = 0;
+    static final int NUMBER = 1;
+    static final int WITH_UNIT = 2;
+
+    /**
+     * Plain decimals only, no separators or units.
+     */
+    static final NumericParser DECIMAL = new NumericParser(null, null, null);
+
+    private static final String[] TIME_UNITS = {"ns", "us", "µs", "μs", "ms", "s", "min", "h"};
+    private static final double[] TIME_NANOS = {1, 1e3, 1e3, 1e3, 1e6, 1e9, 60e9, 3600e9};
+    private static final String[] SIZE_UNITS = {"B", "KB", "MB", "GB", "TB", "KiB", "MiB", "GiB", "TiB"};
+    private static final double[] SIZE_BYTES = {1, 0x1p10, 0x1p20, 0x1p30, 0x1p40, 0x1p10, 0x1p20, 0x1p30, 0x1p40};
+
+    private static final long MAX_EXACT = 1L << 53;
+    private static final int MAX_DIGITS = 18;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Unit suffixes and their factor to the base unit; null without units
+    private final String[] units;
+    private final double[] scales;
+    private final boolean[] ignoreCase;
+
+    private NumericParser(String[] units, double[] scales, boolean[] ignoreCase) {
+        this.units = units;
+        this.scales = scales;
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * Parser accepting separators and unit suffixes, scaled to the given base units.
+     *
+     * @throws IllegalArgumentException if a base unit is unknown
+     */
+    static NumericParser withUnits(String timeBaseUnit, String sizeBaseUnit) {
+        double timeBase = TIME_NANOS[baseIndex(TIME_UNITS, timeBaseUnit, false, "time")];
+        double sizeBase = SIZE_BYTES[baseIndex(SIZE_UNITS, sizeBaseUnit, true, "size")];
+        int count = TIME_UNITS.length + SIZE_UNITS.length;
+        String[] units = new String[count];
+        double[] scales = new double[count];
+        boolean[] ignoreCase = new boolean[count];
+        for (int i = 0; i < TIME_UNITS.length; i++) {
+            units[i] = TIME_UNITS[i];
+            scales[i] = TIME_NANOS[i] / timeBase;
+        }
+        for (int i = 0; i < SIZE_UNITS.length; i++) {
+            units[TIME_UNITS.length + i] = SIZE_UNITS[i];
+            scales[TIME_UNITS.length + i] = SIZE_BYTES[i] / sizeBase;
+            ignoreCase[TIME_UNITS.length + i] = true;
+        }
+        return new NumericParser(units, scales, ignoreCase);
+    }
+
+    /**
+     * Mutable holder for a parsed value, kept by the caller so parsing does not box.
+     */
+    static final class Result {
+        double value;
+    }
+
+    /**
+     * Parses a value. On success the number, scaled to its base unit if it had one, is written
+     * to {@code into} (when not null).
+     *
+     * @return {@link #NOT_NUMERIC}, {@link #NUMBER} or {@link #WITH_UNIT}
+     */
+    int parse(String text, Result into) {
+        if (text == null) return NOT_NUMERIC;
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) <= ' ') end--;
+
+        int i = 0;
+        boolean negative = end > 0 && text.charAt(0) == '-';
+        if (negative) i++;
+
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        int digits = 0;
+
+        // Integer part, with optional thousands separators
+        int group = 0;
+        boolean separated = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (significant < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) significant++;
+                } else {
+                    truncated = true;
+                }
+                digits++;
+                group++;
+            } else if (c == ',' && units != null) {
+                if (separated ? group != 3 : group == 0 || group > 3) return NOT_NUMERIC;
+                separated = true;
+                group = 0;
+            } else {
+                break;
+            }
+        }
+        if (separated && group != 3) return NOT_NUMERIC;
+
+        // Fraction
+        if (i < end && text.charAt(i) == '.') {
+            for (i++; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') break;
+                if (significant < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) significant++;
+                    exponent--;
+                } else {
+                    truncated = true;
+                }
+                digits++;
+            }
+        }
+        if (digits == 0) return NOT_NUMERIC;
+
+        // Exponent
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = i < end && text.charAt(i) == '-';
+            if (i < end && (negativeExponent || text.charAt(i) == '+')) i++;
+            int exponentStart = i;
+            int explicit = 0;
+            for (; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') break;
+                if (explicit < 100_000) explicit = explicit * 10 + (c - '0');
+            }
+            if (i == exponentStart) return NOT_NUMERIC;
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        int numberEnd = i;
+
+        // Unit suffix
+        double scale = 1;
+        int status = NUMBER;
+        if (i < end) {
+            if (units == null) return NOT_NUMERIC;
+            if (text.charAt(i) == ' ') i++;
+            int unit = unit(text, i, end);
+            if (unit < 0) return NOT_NUMERIC;
+            scale = scales[unit];
+            status = WITH_UNIT;
+        }
+
+        if (into != null) {
+            double value;
+            if (!truncated && mantissa <= MAX_EXACT && exponent >= -22 && exponent <= 22) {
+                value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+                if (negative) value = -value;
+            } else {
+                // Slow path: more digits or a wider exponent than the exact doubles cover
+                String number = text.substring(0, numberEnd);
+                value = Double.parseDouble(separated ? number.replace(",", "") : number);
+            }
+            into.value = value * scale;
+        }
+        return status;
+    }
+
+    /**
+     * Whether the value parses, without computing it.
+     */
+    boolean isNumeric(String text) {
+        return parse(text, null) != NOT_NUMERIC;
+    }
+
+    private int unit(String text, int from, int end) {
+        int length = end - from;
+        for (int u = 0; u < units.length; u++) {
+            String name = units[u];
+            if (name.length() == length && text.regionMatches(ignoreCase[u], from, name, 0, length)) return u;
+        }
+        return -1;
+    }
+
+    private static int baseIndex(String[] names, String base, boolean ignoreCase, String kind) {
+        if (base != null) {
+            String trimmed = base.trim();
+            for (int i = 0; i < names.length; i++) {
+                if (ignoreCase ? names[i].equalsIgnoreCase(trimmed) : names[i].equals(trimmed)) return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown " + kind + " unit '" + base + "'");
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.dordor12;
+
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Accumulator for a series whose meter is still being registered.
+ * <p>
+ * Series registration is single-flight per cache key: the thread that installs the pending slot
+ * materializes tags and registers the meter, while concurrent misses on the same key record into
+ * this slot instead of contending on the Micrometer registry. Once the meter is published,
+ * {@link #complete(DoubleConsumer)} replays the accumulated values into it; from then on
+ * {@link #record(double)} returns {@code false} and callers record into the meter directly.
+ * <p>
+ * Counter slots only keep a running sum. Histogram slots buffer up to
+ * {@value #MAX_BUFFERED_VALUES} individual values so distribution statistics are preserved;
+ * values beyond that bound only feed a running count, sum and max, which are replayed as values
+ * with the same count, sum and max. Only their spread within the distribution is approximated.
+ */
+final class PendingSeries {
+    static final int MAX_BUFFERED_VALUES = 1024;
+
+    private final boolean keepValues;
+    private double sum;
+    private int recorded;
+    private double[] values;
+    private int size;
+    // Histogram values past the buffer
+    private int overflowCount;
+    private double overflowSum;
+    private double overflowMax;
+    private boolean completed;
+
+    /**
+     * @param keepValues {@code true} to buffer individual values (histograms),
+     *                   {@code false} to keep only their sum (counters)
+     */
+    PendingSeries(boolean keepValues) {
+        this.keepValues = keepValues;
+    }
+
+    /**
+     * Records a value while the meter is being registered.
+     *
+     * @return {@code false} if the slot has already been completed and the value was not taken
+     */
+    synchronized boolean record(double amount) {
+        if (completed) return false;
+        recorded++;
+        if (!keepValues) {
+            sum += amount;
+            return true;
+        }
+        if (values == null) {
+            values = new double[8];
+        } else if (size == values.length) {
+            if (size >= MAX_BUFFERED_VALUES) {
+                if (overflowCount++ == 0 || amount > overflowMax) overflowMax = amount;
+                overflowSum += amount;
+                return true;
+            }
+            values = Arrays.copyOf(values, Math.min(size * 2, MAX_BUFFERED_VALUES));
+        }
+        values[size++] = amount;
+        return true;
+    }
+
+    /**
+     * Marks the slot completed and replays everything recorded so far into {@code sink}.
+     * Counter slots replay their sum as a single value. A {@code null} sink discards the values,
+     * which is used when registration fails or the claim is released.
+     *
+     * @return the number of recorded values that were discarded, {@code 0} when replayed
+     */
+    synchronized int complete(DoubleConsumer sink) {
+        if (completed) return 0;
+        completed = true;
+        if (sink == null) {
+            values = null;
+            return recorded;
+        }
+        if (!keepValues) {
+            if (sum > 0) sink.accept(sum);
+            return 0;
+        }
+        for (int i = 0; i < size; i++) {
+            sink.accept(values[i]);
+        }
+        if (overflowCount > 0) {
+            // The max once, then the rest at their mean: count, sum and max come out exact
+            sink.accept(overflowMax);
+            double rest = overflowCount > 1 ? (overflowSum - overflowMax) / (overflowCount - 1) : 0;
+            for (int i = 1; i < overflowCount; i++) {
+                sink.accept(rest);
+            }
+        }
+        values = null;
+        return 0;
+    }
+}
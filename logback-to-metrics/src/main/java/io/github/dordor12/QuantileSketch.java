@@ -0,0 +1,179 @@
+package io.github.dordor12;
+
+import java.util.Arrays;
+
+/**
+ * Compact mergeable quantile sketch with relative-error guarantees, in the style of DDSketch.
+ * <p>
+ * Positive values are mapped to logarithmic buckets {@code ceil(log(v) / log(gamma))} with
+ * {@code gamma = (1 + a) / (1 - a)} for a relative accuracy {@code a} of
+ * {@value #RELATIVE_ACCURACY}, so any quantile is returned within that relative error of a
+ * recorded value. Bucket counts live in a fixed window of {@value #BUCKETS} {@code int}s that
+ * slides toward the highest values seen; when the recorded range exceeds the window, the lowest
+ * buckets are collapsed, which only affects the accuracy of the lowest quantiles. Each sketch
+ * therefore has a fixed footprint of about {@value #FOOTPRINT_BYTES} bytes.
+ * <p>
+ * Zero and negative values share a single zero bucket and are reported as {@code 0} by
+ * {@link #quantile(double)}; count, sum and max remain exact. All methods are synchronized.
+ */
+final class QuantileSketch {
+    static final double RELATIVE_ACCURACY = 0.02;
+    static final int BUCKETS = 512;
+    static final int FOOTPRINT_BYTES = BUCKETS * Integer.BYTES + 64;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    // Smallest value given its own bucket; anything below counts as zero
+    private static final double MIN_INDEXABLE = Double.MIN_NORMAL * GAMMA;
+
+    private final int[] counts = new int[BUCKETS];
+    private int offset;
+    private int minIndex = Integer.MAX_VALUE;
+    private int maxIndex = Integer.MIN_VALUE;
+    private long zeroCount;
+    private long count;
+    private double sum;
+    private double max = Double.NaN;
+
+    static int index(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    private static double lowerBound(int index) {
+        return Math.pow(GAMMA, index - 1);
+    }
+
+    synchronized void record(double value) {
+        if (Double.isNaN(value)) return;
+        count++;
+        sum += value;
+        if (Double.isNaN(max) || value > max) max = value;
+        if (value < MIN_INDEXABLE) {
+            zeroCount++;
+        } else {
+            add(index(value), 1);
+        }
+    }
+
+    /**
+     * Adds every value of {@code other} to this sketch.
+     */
+    void merge(QuantileSketch other) {
+        if (other == this) return;
+        int[] otherCounts;
+        int otherOffset;
+        int otherMin;
+        int otherMax;
+        long otherZero;
+        long otherCount;
+        double otherSum;
+        double otherMaxValue;
+        synchronized (other) {
+            otherCounts = other.counts.clone();
+            otherOffset = other.offset;
+            otherMin = other.minIndex;
+            otherMax = other.maxIndex;
+            otherZero = other.zeroCount;
+            otherCount = other.count;
+            otherSum = other.sum;
+            otherMaxValue = other.max;
+        }
+        synchronized (this) {
+            if (otherCount == 0) return;
+            count += otherCount;
+            sum += otherSum;
+            zeroCount += otherZero;
+            if (Double.isNaN(max) || otherMaxValue > max) max = otherMaxValue;
+            if (otherMin > otherMax) return;
+            // Highest first, so the window is positioned before lower buckets collapse into it
+            for (int index = otherMax; index >= otherMin; index--) {
+                int c = otherCounts[index - otherOffset];
+                if (c != 0) add(index, c);
+            }
+        }
+    }
+
+    private void add(int index, int n) {
+        if (minIndex > maxIndex) {
+            // First bucket: center the window on it
+            offset = index - BUCKETS / 2;
+        } else if (index >= offset + BUCKETS) {
+            shiftUp(index - BUCKETS + 1);
+        } else if (index < offset) {
+            if (maxIndex - index < BUCKETS) {
+                shiftDown(index);
+            } else {
+                // Out of range below: collapse into the lowest bucket
+                index = offset;
+            }
+        }
+        counts[index - offset] += n;
+        if (index < minIndex) minIndex = index;
+        if (index > maxIndex) maxIndex = index;
+    }
+
+    /**
+     * Moves the window up to start at {@code newOffset}, collapsing buckets below it.
+     */
+    private void shiftUp(int newOffset) {
+        int shift = newOffset - offset;
+        int collapsed = 0;
+        for (int i = 0; i < Math.min(shift + 1, BUCKETS); i++) {
+            collapsed += counts[i];
+        }
+        if (shift < BUCKETS) {
+            System.arraycopy(counts, shift, counts, 0, BUCKETS - shift);
+            Arrays.fill(counts, BUCKETS - shift, BUCKETS, 0);
+        } else {
+            Arrays.fill(counts, 0);
+        }
+        counts[0] = collapsed;
+        offset = newOffset;
+        if (minIndex < newOffset) minIndex = newOffset;
+    }
+
+    /**
+     * Moves the window down to start at {@code newOffset}; the caller guarantees it still covers
+     * {@code maxIndex}.
+     */
+    private void shiftDown(int newOffset) {
+        int shift = offset - newOffset;
+        System.arraycopy(counts, 0, counts, shift, BUCKETS - shift);
+        Arrays.fill(counts, 0, shift, 0);
+        offset = newOffset;
+    }
+
+    /**
+     * Value at quantile {@code q} (0..1), within the relative accuracy of a recorded value,
+     * or {@code NaN} when empty.
+     */
+    synchronized double quantile(double q) {
+        if (count == 0) return Double.NaN;
+        long rank = (long) Math.floor(q * (count - 1));
+        if (rank < zeroCount) return 0.0;
+        long seen = zeroCount;
+        for (int index = minIndex; index <= maxIndex; index++) {
+            seen += counts[index - offset];
+            if (seen > rank) {
+                // Midpoint of the bucket in relative terms, clamped to the exact max
+                return Math.min(2 * lowerBound(index) * GAMMA / (1 + GAMMA), max);
+            }
+        }
+        return max;
+    }
+
+    synchronized long count() {
+        return count;
+    }
+
+    synchronized double sum() {
+        return sum;
+    }
+
+    /**
+     * Largest recorded value, or {@code 0} when empty.
+     */
+    synchronized double max() {
+        return Double.isNaN(max) ? 0.0 : max;
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.dordor12;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A pre-aggregated counter per template that keeps only some tags, configured in
+ * {@code logback.xml}:
+ * <pre>{@code
+ * <rollup>
+ *     <keep>level</keep>
+ * </rollup>
+ * <rollup>
+ *     <name>total</name>
+ * </rollup>
+ * }</pre>
+ * {@code keep} is a comma-separated list of tag keys; all other tags are dropped, and without
+ * {@code keep} the rollup counts every event of the template. The counter is named like the
+ * detailed one with the rollup's {@code name} before the counter suffix, e.g.
+ * {@code logback.to.metrics.order.placed.by_level.counter}. The name defaults to {@code by_}
+ * followed by the kept keys joined with {@code _}, or {@code total} when nothing is kept.
+ */
+@Getter
+@Setter
+public class Rollup {
+    private String name;
+    private String keep;
+}
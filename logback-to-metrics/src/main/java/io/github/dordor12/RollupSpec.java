@@ -0,0 +1,96 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.Tag;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiled {@link Rollup}: the kept tag keys and a hash seed of its own.
+ * <p>
+ * A rollup series is looked up like a detailed one, by template and a tag hash, but the hash
+ * folds only the kept tags of the event onto the rollup's seed. Events differing only in dropped
+ * tags therefore land on one series, and rollup series do not collide with detailed series or
+ * other rollups of the same template. Tags are filtered from the event's materialized tags on
+ * the cold path only.
+ */
+final class RollupSpec {
+    private final String name;
+    private final String[] keep;
+    private final int seed;
+
+    private RollupSpec(String name, String[] keep) {
+        this.name = name;
+        this.keep = keep;
+        this.seed = 31 * 19 + name.hashCode();
+    }
+
+    /**
+     * Compiles a configured rollup.
+     *
+     * @throws IllegalArgumentException if the name is not a single metric name segment
+     */
+    static RollupSpec compile(Rollup rollup) {
+        Set<String> keys = new LinkedHashSet<>();
+        if (rollup.getKeep() != null) {
+            for (String key : rollup.getKeep().split(",")) {
+                if (!key.isBlank()) keys.add(key.trim());
+            }
+        }
+        String name = rollup.getName() != null && !rollup.getName().isBlank()
+                ? rollup.getName().trim()
+                : keys.isEmpty() ? "total" : "by_" + String.join("_", keys);
+        if (name.indexOf('.') >= 0 || name.indexOf(' ') >= 0) {
+            throw new IllegalArgumentException("Rollup name '" + name + "' must not contain dots or spaces");
+        }
+        return new RollupSpec(name, keys.toArray(new String[0]));
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * Hash of the kept tags of an event.
+     */
+    int hash(EventFields fields) {
+        int hash = seed;
+        for (int i = 0; i < fields.tagCount(); i++) {
+            String key = fields.tagKey(i);
+            if (keeps(key)) hash = EventFields.foldTag(hash, key, fields.tagValue(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Hash of materialized rollup tags, equal to {@link #hash(EventFields)} of an event carrying
+     * them. Used when counters are re-registered without a tag.
+     */
+    int hash(List<Tag> tags) {
+        int hash = seed;
+        for (Tag tag : tags) {
+            if (keeps(tag.getKey())) hash = EventFields.foldTag(hash, tag.getKey(), tag.getValue());
+        }
+        return hash;
+    }
+
+    /**
+     * The kept tags of an event. Cold path only.
+     */
+    List<Tag> tags(EventFields fields) {
+        List<Tag> kept = new ArrayList<>(keep.length);
+        for (Tag tag : fields.tags()) {
+            if (keeps(tag.getKey())) kept.add(tag);
+        }
+        return kept;
+    }
+
+    private boolean keeps(String key) {
+        for (String kept : keep) {
+            if (kept.equals(key)) return true;
+        }
+        return false;
+    }
+}
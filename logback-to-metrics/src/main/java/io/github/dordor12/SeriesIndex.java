@@ -0,0 +1,229 @@
+package io.github.dordor12;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Concurrent open-addressing index from (template, tag hash) to a dense series id and its meter
+ * handle, shared by counters and histograms.
+ * <p>
+ * Each entry is keyed by a 64-bit fingerprint made of the template's {@code hashCode()} and the
+ * tag hash, so a probe compares one {@code long} and confirms the template by identity (falling
+ * back to {@code equals} only for a different instance with the same hash). Reads are lock-free:
+ * writers fill the fingerprint and id before publishing the template reference with release
+ * semantics, and readers acquire the template before reading the rest of the entry. Inserts,
+ * removals and resizes are serialized on the index; a resize builds a new table and publishes it
+ * with a volatile write, so readers holding the old table simply see a consistent older snapshot.
+ * <p>
+ * The index is a cache in front of the appender's authoritative maps: a miss (including one
+ * caused by reading an older table) falls back to the map lookup. Ids are never reused.
+ */
+final class SeriesIndex {
+    private static final Object TOMBSTONE = new Object();
+    private static final VarHandle TEMPLATES = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int HANDLE_CHUNK_BITS = 10;
+    private static final int HANDLE_CHUNK_SIZE = 1 << HANDLE_CHUNK_BITS;
+
+    /**
+     * One immutable-capacity open-addressing table.
+     */
+    private static final class Table {
+        final long[] fingerprints;
+        final int[] ids;
+        final Object[] templates;
+        final int mask;
+
+        Table(int capacity) {
+            fingerprints = new long[capacity];
+            ids = new int[capacity];
+            templates = new Object[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private volatile Object[][] handles = new Object[0][];
+
+    // Guarded by this
+    private int nextId;
+    private int used;
+    private int live;
+    private int maxProbeLength;
+
+    static long fingerprint(String template, int tagHash) {
+        return ((long) template.hashCode() << 32) | (tagHash & 0xFFFFFFFFL);
+    }
+
+    private static int home(long fingerprint, int mask) {
+        // MurmurHash3 fmix64 — spreads both halves of the fingerprint over the table
+        long h = fingerprint;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    /**
+     * Returns the series id for the template and tag hash, or {@code -1} if absent.
+     */
+    int find(String template, int tagHash) {
+        long fp = fingerprint(template, tagHash);
+        Table t = table;
+        int i = home(fp, t.mask);
+        while (true) {
+            Object candidate = TEMPLATES.getAcquire(t.templates, i);
+            if (candidate == null) return -1;
+            if (candidate != TOMBSTONE && t.fingerprints[i] == fp
+                    && (candidate == template || candidate.equals(template))) {
+                return t.ids[i];
+            }
+            i = (i + 1) & t.mask;
+        }
+    }
+
+    /**
+     * Returns the handle for the template and tag hash, or {@code null} if absent.
+     */
+    Object get(String template, int tagHash) {
+        int id = find(template, tagHash);
+        return id < 0 ? null : handle(id);
+    }
+
+    /**
+     * Returns the handle stored for a series id.
+     */
+    Object handle(int id) {
+        return handles[id >>> HANDLE_CHUNK_BITS][id & (HANDLE_CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * Inserts a handle unless the key is already present.
+     *
+     * @return the series id of the existing or inserted entry
+     */
+    synchronized int putIfAbsent(String template, int tagHash, Object handle) {
+        int existing = find(template, tagHash);
+        if (existing >= 0) return existing;
+
+        if ((used + 1) * 2 > table.fingerprints.length) {
+            rehash(live + 1 > table.fingerprints.length / 4 ? table.fingerprints.length * 2 : table.fingerprints.length);
+        }
+
+        int id = nextId++;
+        int chunk = id >>> HANDLE_CHUNK_BITS;
+        Object[][] h = handles;
+        if (chunk == h.length) {
+            h = Arrays.copyOf(h, chunk + 1);
+            h[chunk] = new Object[HANDLE_CHUNK_SIZE];
+        }
+        h[chunk][id & (HANDLE_CHUNK_SIZE - 1)] = handle;
+        handles = h;
+
+        insert(table, fingerprint(template, tagHash), id, template);
+        used++;
+        live++;
+        return id;
+    }
+
+    /**
+     * Removes the entry if it currently maps to {@code expectedHandle}.
+     */
+    synchronized boolean remove(String template, int tagHash, Object expectedHandle) {
+        long fp = fingerprint(template, tagHash);
+        Table t = table;
+        int i = home(fp, t.mask);
+        while (true) {
+            Object candidate = t.templates[i];
+            if (candidate == null) return false;
+            if (candidate != TOMBSTONE && t.fingerprints[i] == fp && candidate.equals(template)) {
+                int id = t.ids[i];
+                if (handle(id) != expectedHandle) return false;
+                TEMPLATES.setRelease(t.templates, i, TOMBSTONE);
+                // Release the handle; a reader that already found this id sees a miss
+                handles[id >>> HANDLE_CHUNK_BITS][id & (HANDLE_CHUNK_SIZE - 1)] = null;
+                live--;
+                return true;
+            }
+            i = (i + 1) & t.mask;
+        }
+    }
+
+    private void insert(Table t, long fp, int id, Object template) {
+        int i = home(fp, t.mask);
+        int probe = 1;
+        while (true) {
+            Object candidate = t.templates[i];
+            if (candidate == null) {
+                t.fingerprints[i] = fp;
+                t.ids[i] = id;
+                TEMPLATES.setRelease(t.templates, i, template);
+                if (probe > maxProbeLength) maxProbeLength = probe;
+                return;
+            }
+            i = (i + 1) & t.mask;
+            probe++;
+        }
+    }
+
+    /**
+     * Copies live entries into a fresh table, dropping tombstones.
+     */
+    private void rehash(int capacity) {
+        Table old = table;
+        Table fresh = new Table(capacity);
+        maxProbeLength = 0;
+        for (int i = 0; i < old.templates.length; i++) {
+            Object template = old.templates[i];
+            if (template != null && template != TOMBSTONE) {
+                insert(fresh, old.fingerprints[i], old.ids[i], template);
+            }
+        }
+        used = live;
+        table = fresh;
+    }
+
+    /**
+     * Number of live entries.
+     */
+    synchronized int size() {
+        return live;
+    }
+
+    /**
+     * Bytes held by the table and the id-to-handle chunks (references counted as 8 bytes).
+     */
+    long footprintBytes() {
+        Table t = table;
+        long tableBytes = (long) t.fingerprints.length * (Long.BYTES + Integer.BYTES + 8);
+        return tableBytes + (long) handles.length * HANDLE_CHUNK_SIZE * 8;
+    }
+
+    /**
+     * Longest probe sequence (slots inspected) needed by any insert into the current table.
+     */
+    synchronized int maxProbeLength() {
+        return maxProbeLength;
+    }
+
+    /**
+     * Mean number of slots inspected to find a live entry in the current table.
+     */
+    synchronized double meanProbeLength() {
+        Table t = table;
+        long total = 0;
+        int entries = 0;
+        for (int i = 0; i < t.templates.length; i++) {
+            Object template = t.templates[i];
+            if (template != null && template != TOMBSTONE) {
+                int distance = (i - home(t.fingerprints[i], t.mask)) & t.mask;
+                total += distance + 1;
+                entries++;
+            }
+        }
+        return entries == 0 ? 0.0 : (double) total / entries;
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.dordor12;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Primitive storage for counter series, indexed by a dense slot id.
+ * <p>
+ * Counts live in {@code long} slots grouped into fixed-size chunks, either plain {@code long[]}
+ * arrays on the heap or direct (off-heap) {@link ByteBuffer}s. Chunks are allocated on demand
+ * and never move, so an increment is a single atomic add on one slot and the store costs
+ * {@value #SLOT_BYTES} bytes per series instead of a full Micrometer counter object graph.
+ * <p>
+ * Slots are never reused: a counter removed by cardinality protection may still be held by a
+ * concurrent appender thread, and reusing its slot would leak those increments into another series.
+ */
+final class SeriesStore {
+    static final int SLOT_BYTES = Long.BYTES;
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final VarHandle HEAP_SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle OFF_HEAP_SLOT = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final boolean offHeap;
+
+    // Copy-on-grow chunk table; a slot's chunk is published before the slot id is handed out
+    private volatile Object[] chunks = new Object[0];
+    private int nextSlot;
+
+    /**
+     * @param offHeap {@code true} to keep counts in direct buffers, {@code false} for {@code long[]} chunks
+     */
+    SeriesStore(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Allocates a new zeroed slot.
+     */
+    synchronized int allocate() {
+        int slot = nextSlot++;
+        int chunk = slot >>> CHUNK_BITS;
+        if (chunk == chunks.length) {
+            Object[] grown = Arrays.copyOf(chunks, chunk + 1);
+            grown[chunk] = offHeap
+                    ? ByteBuffer.allocateDirect(CHUNK_SIZE * SLOT_BYTES + SLOT_BYTES - 1).alignedSlice(SLOT_BYTES)
+                    : new long[CHUNK_SIZE];
+            chunks = grown;
+        }
+        return slot;
+    }
+
+    void add(int slot, long delta) {
+        Object chunk = chunks[slot >>> CHUNK_BITS];
+        int index = slot & CHUNK_MASK;
+        if (offHeap) {
+            OFF_HEAP_SLOT.getAndAdd((ByteBuffer) chunk, index * SLOT_BYTES, delta);
+        } else {
+            HEAP_SLOT.getAndAdd((long[]) chunk, index, delta);
+        }
+    }
+
+    long get(int slot) {
+        Object chunk = chunks[slot >>> CHUNK_BITS];
+        int index = slot & CHUNK_MASK;
+        if (offHeap) {
+            return (long) OFF_HEAP_SLOT.getVolatile((ByteBuffer) chunk, index * SLOT_BYTES);
+        }
+        return (long) HEAP_SLOT.getVolatile((long[]) chunk, index);
+    }
+
+    /**
+     * Number of slots handed out so far.
+     */
+    synchronized int size() {
+        return nextSlot;
+    }
+
+    /**
+     * Bytes reserved for slots, on-heap or off-heap depending on the store type.
+     */
+    long footprintBytes() {
+        return (long) chunks.length * CHUNK_SIZE * SLOT_BYTES;
+    }
+
+    boolean isOffHeap() {
+        return offHeap;
+    }
+}
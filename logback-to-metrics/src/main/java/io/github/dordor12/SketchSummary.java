@@ -0,0 +1,93 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+/**
+ * {@link DistributionSummary} handle backed by a {@link QuantileSketch}.
+ * <p>
+ * Like {@link SlotCounter}, the handle is what the appender keeps in its histogram map; Micrometer
+ * only sees function meters reading the sketch: {@code <name>.count} and {@code <name>.sum}
+ * function counters, a {@code <name>.max} gauge, and one {@code <name>.percentile} gauge per
+ * percentile tagged with {@code phi}, following Micrometer's own percentile naming.
+ */
+final class SketchSummary implements DistributionSummary {
+    static final double[] DEFAULT_PERCENTILES = {0.5, 0.9, 0.99};
+
+    private final QuantileSketch sketch = new QuantileSketch();
+    private final double[] percentiles;
+    private final Id id;
+
+    private SketchSummary(Id id, double[] percentiles) {
+        this.id = id;
+        this.percentiles = percentiles;
+    }
+
+    /**
+     * Creates a sketch-backed summary and registers its function meters.
+     */
+    static SketchSummary register(String name, Iterable<Tag> tags, double[] percentiles, MeterRegistry registry) {
+        Tags baseTags = Tags.of(tags);
+        var summary = new SketchSummary(
+                new Meter.Id(name, baseTags, null, null, Type.DISTRIBUTION_SUMMARY), percentiles);
+        QuantileSketch sketch = summary.sketch;
+        FunctionCounter.builder(name + ".count", sketch, QuantileSketch::count).tags(baseTags).register(registry);
+        FunctionCounter.builder(name + ".sum", sketch, QuantileSketch::sum).tags(baseTags).register(registry);
+        Gauge.builder(name + ".max", sketch, QuantileSketch::max).tags(baseTags).register(registry);
+        for (double p : percentiles) {
+            Gauge.builder(name + ".percentile", sketch, s -> s.quantile(p))
+                    .tags(baseTags)
+                    .tag("phi", String.valueOf(p))
+                    .register(registry);
+        }
+        return summary;
+    }
+
+    @Override
+    public void record(double amount) {
+        sketch.record(amount);
+    }
+
+    @Override
+    public long count() {
+        return sketch.count();
+    }
+
+    @Override
+    public double totalAmount() {
+        return sketch.sum();
+    }
+
+    @Override
+    public double max() {
+        return sketch.max();
+    }
+
+    @Override
+    public HistogramSnapshot takeSnapshot() {
+        var values = new ValueAtPercentile[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            values[i] = new ValueAtPercentile(percentiles[i], sketch.quantile(percentiles[i]));
+        }
+        return new HistogramSnapshot(sketch.count(), sketch.sum(), sketch.max(), values, null, null);
+    }
+
+    /**
+     * The id of this series; the registered function meters carry its name as a prefix.
+     */
+    @Override
+    public Id getId() {
+        return id;
+    }
+
+    QuantileSketch getSketch() {
+        return sketch;
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * {@link Counter} handle backed by a {@link SeriesStore} slot.
+ * <p>
+ * The handle is what the appender keeps in its counter map; Micrometer sees the series as a
+ * {@code FunctionCounter} reading {@link #count()}, so incrementing never touches a Micrometer
+ * meter. Counts are whole numbers: fractional increments are truncated.
+ */
+final class SlotCounter implements Counter {
+    private final SeriesStore store;
+    private final int slot;
+    private volatile Id id;
+
+    SlotCounter(SeriesStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
+    }
+
+    @Override
+    public void increment() {
+        store.add(slot, 1L);
+    }
+
+    @Override
+    public void increment(double amount) {
+        store.add(slot, (long) amount);
+    }
+
+    @Override
+    public double count() {
+        return store.get(slot);
+    }
+
+    /**
+     * The id of the {@code FunctionCounter} registered for this slot.
+     */
+    @Override
+    public Id getId() {
+        return id;
+    }
+
+    void setId(Id id) {
+        this.id = id;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+}
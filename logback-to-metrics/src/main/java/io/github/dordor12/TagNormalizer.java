@@ -0,0 +1,40 @@
+package io.github.dordor12;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One normalization step for the values of a tag key, configured in {@code logback.xml}:
+ * <pre>{@code
+ * <tagNormalizer>
+ *     <key>path</key>
+ *     <type>path_ids</type>
+ * </tagNormalizer>
+ * <tagNormalizer>
+ *     <key>path</key>
+ *     <type>truncate</type>
+ *     <maxLength>64</maxLength>
+ * </tagNormalizer>
+ * }</pre>
+ * Steps for the same key run in configuration order. Types:
+ * <ul>
+ *   <li>{@code status_class} — three-digit status codes become their class, {@code 404} → {@code 4xx}</li>
+ *   <li>{@code path_ids} — path segments containing digits or long hex strings become {@code {id}}</li>
+ *   <li>{@code truncate} — values longer than {@code maxLength} are cut</li>
+ *   <li>{@code buckets} — numbers become the range they fall in, given ascending {@code buckets}
+ *       bounds such as {@code 0,10,100}: {@code <0}, {@code 0-10}, {@code 10-100}, {@code 100+}</li>
+ *   <li>{@code replace} — every match of the regex {@code pattern} is replaced with
+ *       {@code replacement} (empty by default)</li>
+ * </ul>
+ * Values a step does not apply to (e.g. a non-numeric value for {@code buckets}) pass unchanged.
+ */
+@Getter
+@Setter
+public class TagNormalizer {
+    private String key;
+    private String type;
+    private Integer maxLength;
+    private String buckets;
+    private String pattern;
+    private String replacement;
+}
@@ -0,0 +1,166 @@
+package io.github.dordor12;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Online log-template miner for messages built by string concatenation, after the Drain
+ * fixed-depth parse tree.
+ * <p>
+ * A message is split on spaces and every token containing a digit (numbers, ids, UUIDs, IPs,
+ * timestamps) or looking like a long hex string is masked as {@value #WILDCARD}. The masked
+ * tokens are routed through a tree keyed by token count and the leading token(s) (depth
+ * {@value #TREE_DEPTH}) to a small list of clusters. The message joins the most similar cluster when at least
+ * {@value #SIMILARITY_THRESHOLD} of its tokens match, turning the differing positions into
+ * wildcards for later matching; otherwise it starts a new cluster. Each cluster has a key fixed
+ * when it is created: the masked form of its first message, e.g. {@code User {} logged in}. The
+ * key replaces the raw message as the metric key and never changes as the cluster generalizes,
+ * so every message of the cluster maps to one series for the life of the miner.
+ * <p>
+ * Results are cached by message: a repeated literal hits by identity in {@code String.equals},
+ * a repeated concatenated message by its content hash. Mining itself is serialized, but only
+ * runs on cache misses. Once {@code maxTemplates} clusters exist, unmatched messages fall back
+ * to their masked form, which is cached like a template but never generalizes.
+ */
+final class TemplateMiner {
+    static final String WILDCARD = "{}";
+    static final int TREE_DEPTH = 1;
+    static final double SIMILARITY_THRESHOLD = 0.5;
+    static final int MAX_CHILDREN = 100;
+    static final int MAX_CACHED_MESSAGES = 10_000;
+
+    private static final class Cluster {
+        // Generalized by merges, guarded by the miner
+        final String[] tokens;
+        final String key;
+
+        Cluster(String[] tokens) {
+            this.tokens = tokens;
+            this.key = String.join(" ", tokens);
+        }
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        final List<Cluster> clusters = new ArrayList<>();
+    }
+
+    private final int maxTemplates;
+    private final ConcurrentHashMap<String, Cluster> cache = new ConcurrentHashMap<>();
+    // Guarded by this
+    private final Map<Integer, Node> roots = new HashMap<>();
+    private int clusterCount;
+
+    TemplateMiner(int maxTemplates) {
+        this.maxTemplates = maxTemplates;
+    }
+
+    /**
+     * Returns the stable template key for a raw message.
+     */
+    String template(String message) {
+        Cluster cluster = cache.get(message);
+        if (cluster != null) return cluster.key;
+
+        String[] tokens = tokenize(message);
+        if (tokens.length == 0) return message;
+        synchronized (this) {
+            cluster = mine(tokens);
+        }
+        // Miner full: cache the masked form too, so the message does not mine again
+        if (cluster == null) cluster = new Cluster(tokens);
+
+        // Bounded: concatenated messages are unbounded, the clusters they map to are not
+        if (cache.size() >= MAX_CACHED_MESSAGES) cache.clear();
+        cache.put(message, cluster);
+        return cluster.key;
+    }
+
+    /**
+     * Number of templates mined so far.
+     */
+    synchronized int size() {
+        return clusterCount;
+    }
+
+    static String[] tokenize(String message) {
+        var tokens = new ArrayList<String>();
+        int start = -1;
+        for (int i = 0; i <= message.length(); i++) {
+            boolean space = i == message.length() || Character.isWhitespace(message.charAt(i));
+            if (space) {
+                if (start >= 0) {
+                    tokens.add(mask(message.substring(start, i)));
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    /**
+     * Masks variable-looking tokens: anything with a digit, and hex strings of 8+ characters.
+     */
+    static String mask(String token) {
+        boolean hex = token.length() >= 8;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c >= '0' && c <= '9') return WILDCARD;
+            if (hex && !((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') || c == '-')) hex = false;
+        }
+        return hex ? WILDCARD : token;
+    }
+
+    private Cluster mine(String[] tokens) {
+        Node node = roots.computeIfAbsent(tokens.length, n -> new Node());
+        for (int depth = 0; depth < Math.min(TREE_DEPTH, tokens.length); depth++) {
+            String token = tokens[depth];
+            Node child = node.children.get(token);
+            if (child == null) {
+                // Too many distinct tokens at this level: route everything else through the wildcard
+                String key = node.children.size() < MAX_CHILDREN ? token : WILDCARD;
+                child = node.children.computeIfAbsent(key, k -> new Node());
+            }
+            node = child;
+        }
+
+        Cluster best = null;
+        double bestSimilarity = -1;
+        for (Cluster cluster : node.clusters) {
+            double similarity = similarity(cluster.tokens, tokens);
+            if (similarity > bestSimilarity) {
+                best = cluster;
+                bestSimilarity = similarity;
+            }
+        }
+        if (best != null && bestSimilarity >= SIMILARITY_THRESHOLD) {
+            merge(best, tokens);
+            return best;
+        }
+        if (clusterCount >= maxTemplates) return null;
+
+        var cluster = new Cluster(tokens.clone());
+        node.clusters.add(cluster);
+        clusterCount++;
+        return cluster;
+    }
+
+    private static double similarity(String[] template, String[] tokens) {
+        int same = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (template[i].equals(tokens[i])) same++;
+        }
+        return (double) same / tokens.length;
+    }
+
+    private static void merge(Cluster cluster, String[] tokens) {
+        for (int i = 0; i < tokens.length; i++) {
+            if (!cluster.tokens[i].equals(tokens[i])) cluster.tokens[i] = WILDCARD;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Statistic;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * {@link DistributionSummary} handle that starts as a primitive count/sum/max triple and is
+ * promoted to a full summary once the series is hot.
+ * <p>
+ * Until promotion the series is published as one distribution-summary meter under
+ * {@code <name>} with count, total and max measurements, so it is exported with the same names
+ * as the full summary (e.g. Prometheus {@code _count}, {@code _sum}, {@code _max}). When
+ * {@code promotionRate} values arrive within one second, a promotion is handed to the
+ * {@code promotions} executor, outside the series monitor: the tier-one meter is swapped for the
+ * full summary produced by the factory, which then takes over. The export continues under the
+ * same name and restarts from zero like a reset counter. Values recorded while the swap is in
+ * flight are carried over into the full summary once it is published, so none go unexported. If
+ * the factory fails, the tier-one meter is registered again, tier one keeps counting and a later
+ * window may retry.
+ */
+final class TieredSummary implements DistributionSummary {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Id id;
+    private final MeterRegistry registry;
+    private final Supplier<DistributionSummary> fullSummary;
+    private final long promotionRate;
+    private final Consumer<Runnable> promotions;
+    private volatile DistributionSummary promoted;
+    // Touched only by register() and the single in-flight promotion
+    private volatile Meter tierMeter;
+
+    // Tier one, guarded by this
+    private long count;
+    private double sum;
+    private double max;
+    private long windowStart = System.nanoTime();
+    private long windowCount;
+    private boolean promoting;
+    // Values recorded after the tier-one meter was removed, replayed into the full summary
+    private double[] carried;
+    private int carriedCount;
+
+    private TieredSummary(Id id, MeterRegistry registry, Supplier<DistributionSummary> fullSummary,
+                          long promotionRate, Consumer<Runnable> promotions) {
+        this.id = id;
+        this.registry = registry;
+        this.fullSummary = fullSummary;
+        this.promotionRate = promotionRate;
+        this.promotions = promotions;
+    }
+
+    /**
+     * Creates a tiered summary and registers its tier-one meter.
+     *
+     * @param promotionRate values per second at which the series is promoted
+     * @param fullSummary   registers the full summary on promotion
+     * @param promotions    runs a promotion, inline or on a background thread
+     */
+    static TieredSummary register(String name, Iterable<Tag> tags, long promotionRate,
+                                  Supplier<DistributionSummary> fullSummary, Consumer<Runnable> promotions,
+                                  MeterRegistry registry) {
+        var summary = new TieredSummary(new Meter.Id(name, Tags.of(tags), null, null, Type.DISTRIBUTION_SUMMARY),
+                registry, fullSummary, promotionRate, promotions);
+        summary.tierMeter = summary.registerTier();
+        return summary;
+    }
+
+    private Meter registerTier() {
+        return Meter.builder(id.getName(), Type.DISTRIBUTION_SUMMARY, List.of(
+                        new Measurement(this::tierCount, Statistic.COUNT),
+                        new Measurement(this::tierSum, Statistic.TOTAL),
+                        new Measurement(this::tierMax, Statistic.MAX)))
+                .tags(id.getTagsAsIterable())
+                .register(registry);
+    }
+
+    @Override
+    public void record(double amount) {
+        DistributionSummary full = promoted;
+        if (full != null) {
+            full.record(amount);
+            return;
+        }
+        boolean promote = false;
+        synchronized (this) {
+            full = promoted;
+            if (full == null) {
+                count++;
+                sum += amount;
+                if (count == 1 || amount > max) max = amount;
+                if (carried != null) carry(amount);
+                // Read the clock only once per promotionRate values
+                if (++windowCount >= promotionRate) {
+                    long now = System.nanoTime();
+                    promote = !promoting && now - windowStart <= WINDOW_NANOS;
+                    promoting |= promote;
+                    windowStart = now;
+                    windowCount = 0;
+                }
+            }
+        }
+        if (full != null) {
+            full.record(amount);
+        } else if (promote) {
+            promotions.accept(this::promote);
+        }
+    }
+
+    /**
+     * Swaps the tier-one meter for the full summary. Both share one id, so the tier-one meter is
+     * removed first and registered again if the full summary cannot be. From the removal until
+     * the full summary is published, recorded values are kept and replayed into it.
+     */
+    private void promote() {
+        DistributionSummary full = null;
+        try {
+            synchronized (this) {
+                registry.remove(tierMeter);
+                carried = new double[16];
+                carriedCount = 0;
+            }
+            full = fullSummary.get();
+        } finally {
+            if (full == null) {
+                synchronized (this) {
+                    promoting = false;
+                    carried = null;
+                }
+                // Tier one kept counting the carried values, so its totals are complete
+                tierMeter = registerTier();
+            }
+        }
+
+        double[] values;
+        int size;
+        synchronized (this) {
+            promoted = full;
+            values = carried;
+            size = carriedCount;
+            carried = null;
+        }
+        tierMeter = null;
+        for (int i = 0; i < size; i++) {
+            full.record(values[i]);
+        }
+    }
+
+    private void carry(double amount) {
+        if (carriedCount == carried.length) carried = Arrays.copyOf(carried, carriedCount * 2);
+        carried[carriedCount++] = amount;
+    }
+
+    boolean isPromoted() {
+        return promoted != null;
+    }
+
+    private synchronized double tierCount() {
+        return count;
+    }
+
+    private synchronized double tierSum() {
+        return sum;
+    }
+
+    private synchronized double tierMax() {
+        return max;
+    }
+
+    @Override
+    public long count() {
+        DistributionSummary full = promoted;
+        return full != null ? full.count() : (long) tierCount();
+    }
+
+    @Override
+    public double totalAmount() {
+        DistributionSummary full = promoted;
+        return full != null ? full.totalAmount() : tierSum();
+    }
+
+    @Override
+    public double max() {
+        DistributionSummary full = promoted;
+        return full != null ? full.max() : tierMax();
+    }
+
+    @Override
+    public HistogramSnapshot takeSnapshot() {
+        DistributionSummary full = promoted;
+        return full != null ? full.takeSnapshot() : HistogramSnapshot.empty(count(), totalAmount(), max());
+    }
+
+    @Override
+    public Id getId() {
+        DistributionSummary full = promoted;
+        return full != null ? full.getId() : id;
+    }
+}
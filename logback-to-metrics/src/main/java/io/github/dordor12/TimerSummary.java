@@ -0,0 +1,58 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts a {@link Timer} to the {@link DistributionSummary} interface the appender keeps in its
+ * histogram map, so duration fields can be recorded as timers. Recorded amounts are in
+ * {@code unit}; reads are converted back to it.
+ */
+final class TimerSummary implements DistributionSummary {
+    private final Timer timer;
+    private final TimeUnit unit;
+    private final long nanosPerUnit;
+
+    TimerSummary(Timer timer, TimeUnit unit) {
+        this.timer = timer;
+        this.unit = unit;
+        this.nanosPerUnit = unit.toNanos(1);
+    }
+
+    @Override
+    public void record(double amount) {
+        timer.record((long) (amount * nanosPerUnit), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long count() {
+        return timer.count();
+    }
+
+    @Override
+    public double totalAmount() {
+        return timer.totalTime(unit);
+    }
+
+    @Override
+    public double max() {
+        return timer.max(unit);
+    }
+
+    @Override
+    public HistogramSnapshot takeSnapshot() {
+        return timer.takeSnapshot();
+    }
+
+    @Override
+    public Id getId() {
+        return timer.getId();
+    }
+
+    Timer getTimer() {
+        return timer;
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.dordor12;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled chain of {@link TagNormalizer} steps for one tag key.
+ * <p>
+ * Results are memoized by raw value, so the regex and tokenizer cost of a chain is paid once per
+ * distinct value; the memo holds at most {@value #MAX_CACHED_VALUES} values and is cleared when
+ * full. Raw values are keyed as logged, so a repeated {@code Integer} status or a repeated
+ * literal string hits without being rendered.
+ */
+final class ValueNormalizer {
+    static final int MAX_CACHED_VALUES = 10_000;
+    static final String ID = "{id}";
+
+    private final List<UnaryOperator<String>> steps;
+    private final ConcurrentHashMap<Object, String> cache = new ConcurrentHashMap<>();
+
+    private ValueNormalizer(List<UnaryOperator<String>> steps) {
+        this.steps = steps;
+    }
+
+    static ValueNormalizer of(UnaryOperator<String> step) {
+        return new ValueNormalizer(List.of(step));
+    }
+
+    /**
+     * This chain followed by one more step.
+     */
+    ValueNormalizer then(UnaryOperator<String> step) {
+        var chained = new ArrayList<>(steps);
+        chained.add(step);
+        return new ValueNormalizer(List.copyOf(chained));
+    }
+
+    String normalize(Object raw) {
+        String normalized = cache.get(raw);
+        if (normalized != null) return normalized;
+        normalized = EventFields.render(raw);
+        for (UnaryOperator<String> step : steps) {
+            normalized = step.apply(normalized);
+        }
+        if (cache.size() >= MAX_CACHED_VALUES) cache.clear();
+        cache.put(raw, normalized);
+        return normalized;
+    }
+
+    /**
+     * Compiles one configured step.
+     *
+     * @throws IllegalArgumentException if the type is unknown or its settings are missing or invalid
+     */
+    static UnaryOperator<String> compile(TagNormalizer normalizer) {
+        if (normalizer.getType() == null) {
+            throw new IllegalArgumentException("No type");
+        }
+        switch (normalizer.getType().trim().toLowerCase(Locale.ROOT)) {
+            case "status_class":
+                return ValueNormalizer::statusClass;
+            case "path_ids":
+                return ValueNormalizer::pathIds;
+            case "truncate": {
+                Integer maxLength = normalizer.getMaxLength();
+                if (maxLength == null || maxLength <= 0) {
+                    throw new IllegalArgumentException("truncate needs a positive maxLength");
+                }
+                return value -> value.length() > maxLength ? value.substring(0, maxLength) : value;
+            }
+            case "buckets":
+                return buckets(normalizer.getBuckets());
+            case "replace": {
+                if (normalizer.getPattern() == null) {
+                    throw new IllegalArgumentException("replace needs a pattern");
+                }
+                Pattern pattern = Pattern.compile(normalizer.getPattern());
+                String replacement = normalizer.getReplacement() != null ? normalizer.getReplacement() : "";
+                return value -> pattern.matcher(value).replaceAll(replacement);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown type '" + normalizer.getType() + "'");
+        }
+    }
+
+    static String statusClass(String value) {
+        if (value.length() != 3) return value;
+        char first = value.charAt(0);
+        if (first < '1' || first > '5' || !isDigit(value.charAt(1)) || !isDigit(value.charAt(2))) return value;
+        return first + "xx";
+    }
+
+    static String pathIds(String value) {
+        var sb = new StringBuilder(value.length());
+        int start = 0;
+        for (int i = 0; i <= value.length(); i++) {
+            if (i < value.length() && value.charAt(i) != '/') continue;
+            String segment = value.substring(start, i);
+            sb.append(!segment.isEmpty() && TemplateMiner.WILDCARD.equals(TemplateMiner.mask(segment)) ? ID : segment);
+            if (i < value.length()) sb.append('/');
+            start = i + 1;
+        }
+        return sb.toString();
+    }
+
+    private static UnaryOperator<String> buckets(String spec) {
+        if (spec == null || spec.isBlank()) {
+            throw new IllegalArgumentException("buckets needs ascending bounds");
+        }
+        String[] labels = spec.split(",");
+        double[] bounds = new double[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = labels[i].trim();
+            bounds[i] = Double.parseDouble(labels[i]);
+            if (i > 0 && bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("buckets must be ascending: " + spec);
+            }
+        }
+        // Range labels precomputed: "<b0", "b0-b1", ..., "bn+"
+        String[] ranges = new String[labels.length + 1];
+        ranges[0] = "<" + labels[0];
+        for (int i = 1; i < labels.length; i++) {
+            ranges[i] = labels[i - 1] + "-" + labels[i];
+        }
+        ranges[labels.length] = labels[labels.length - 1] + "+";
+        return value -> {
+            var number = new NumericParser.Result();
+            if (NumericParser.DECIMAL.parse(value, number) == NumericParser.NOT_NUMERIC) return value;
+            int range = 0;
+            while (range < bounds.length && number.value >= bounds[range]) range++;
+            return ranges[range];
+        };
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventFieldsTest {
+
+    @Test
+    public void testDecimalHashMatchesRenderedText() {
+        for (long value : new long[]{0, 7, -7, 10, 42, 999_999, -1_000_000, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertEquals(Long.toString(value).hashCode(), EventFields.decimalHash(value), "value " + value);
+        }
+    }
+
+    @Test
+    public void testValueHashMatchesRenderedValue() {
+        assertEquals("42".hashCode(), EventFields.valueHash(42));
+        assertEquals("42".hashCode(), EventFields.valueHash(42L));
+        assertEquals("true".hashCode(), EventFields.valueHash(true));
+        assertEquals("1.5".hashCode(), EventFields.valueHash(1.5));
+        assertEquals("[1, 2]".hashCode(), EventFields.valueHash(new int[]{1, 2}));
+    }
+
+    @Test
+    public void testEqualTagsGiveEqualHash() {
+        EventFields fields = EventFields.begin();
+        fields.addTag("status", 200);
+        int numeric = fields.tagHash();
+
+        fields = EventFields.begin();
+        fields.addTag("status", "200");
+
+        assertEquals(numeric, fields.tagHash());
+        assertEquals(List.of(Tag.of("status", "200")), fields.tags());
+    }
+
+    @Test
+    public void testTagsMaterializedOncePerEvent() {
+        EventFields fields = EventFields.begin();
+        fields.addTag("k", "v");
+
+        assertSame(fields.tags(), fields.tags());
+    }
+
+    @Test
+    public void testBeginResetsRecord() {
+        EventFields fields = EventFields.begin();
+        for (int i = 0; i < 40; i++) {
+            fields.addTag("k" + i, i);
+            fields.addHistogram("h" + i, i);
+            fields.addGauge("g" + i, i);
+        }
+        assertEquals(40, fields.histogramCount());
+        assertEquals(39.0, fields.gaugeValue(39));
+
+        fields = EventFields.begin();
+
+        assertEquals(0, fields.histogramCount());
+        assertEquals(0, fields.gaugeCount());
+        assertTrue(fields.tags().isEmpty());
+        assertEquals(17, fields.tagHash());
+    }
+}
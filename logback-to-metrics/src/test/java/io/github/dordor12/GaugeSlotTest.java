@@ -0,0 +1,42 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GaugeSlotTest {
+
+    @Test
+    public void testLastValue() {
+        var slot = new GaugeSlot(0L);
+
+        assertTrue(Double.isNaN(slot.last()));
+        slot.update(4.5);
+        slot.update(-1.0);
+
+        assertEquals(-1.0, slot.last());
+    }
+
+    @Test
+    public void testMinMaxWithinInterval() {
+        var slot = new GaugeSlot(60_000L);
+        slot.update(7.0);
+        slot.update(3.0);
+        slot.update(11.0);
+
+        assertEquals(3.0, slot.min());
+        assertEquals(11.0, slot.max());
+    }
+
+    @Test
+    public void testMinMaxExpireAfterIdleIntervals() throws InterruptedException {
+        var slot = new GaugeSlot(20L);
+        slot.update(5.0);
+
+        Thread.sleep(50);
+
+        assertTrue(Double.isNaN(slot.max()));
+        assertTrue(Double.isNaN(slot.min()));
+        assertEquals(5.0, slot.last());
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistogramBatcherTest {
+
+    @Test
+    public void testValuesBufferedUntilFlush() {
+        var registry = new SimpleMeterRegistry();
+        var target = DistributionSummary.builder("batched").register(registry);
+        var batcher = new HistogramBatcher();
+        DistributionSummary summary = batcher.wrap(target);
+
+        summary.record(3.0);
+        summary.record(9.0);
+
+        assertEquals(0, summary.count());
+        assertEquals(2, batcher.buffered());
+
+        batcher.flush();
+
+        assertEquals(2, summary.count());
+        assertEquals(12.0, summary.totalAmount());
+        assertEquals(9.0, summary.max());
+        assertEquals(target.getId(), summary.getId());
+    }
+
+    @Test
+    public void testFullBufferMergesInline() {
+        var registry = new SimpleMeterRegistry();
+        var target = DistributionSummary.builder("batched").register(registry);
+        DistributionSummary summary = new HistogramBatcher().wrap(target);
+
+        for (int i = 0; i < HistogramBatcher.BUFFER_CAPACITY; i++) {
+            summary.record(1.0);
+        }
+
+        assertEquals(HistogramBatcher.BUFFER_CAPACITY, target.count());
+    }
+
+    @Test
+    public void testFlushMergesTerminatedThreadBuffers() throws InterruptedException {
+        var registry = new SimpleMeterRegistry();
+        var target = DistributionSummary.builder("batched").register(registry);
+        var batcher = new HistogramBatcher();
+        DistributionSummary summary = batcher.wrap(target);
+
+        Thread writer = new Thread(() -> summary.record(4.0));
+        writer.start();
+        writer.join();
+        batcher.flush();
+
+        assertEquals(1, target.count());
+        assertEquals(0, batcher.buffered());
+    }
+}
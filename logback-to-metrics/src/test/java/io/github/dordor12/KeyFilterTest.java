@@ -0,0 +1,67 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyFilterTest {
+
+    private final List<String> errors = new ArrayList<>();
+
+    @Test
+    public void testExactNames() {
+        var filter = KeyFilter.compile(List.of("a", "b"), List.of("b"), errors::add);
+
+        assertTrue(filter.accepts("a"));
+        assertFalse(filter.accepts("b"));
+        assertFalse(filter.accepts("c"));
+    }
+
+    @Test
+    public void testEmptyListsAcceptEverything() {
+        var filter = KeyFilter.compile(List.of(), List.of(), errors::add);
+
+        assertTrue(filter.accepts("anything"));
+    }
+
+    @Test
+    public void testGlobs() {
+        var filter = KeyFilter.compile(List.of("http_*", "db.*", "shard?"), List.of("*_id"), errors::add);
+
+        assertTrue(filter.accepts("http_status"));
+        assertTrue(filter.accepts("db.table"));
+        assertTrue(filter.accepts("shard7"));
+        assertFalse(filter.accepts("dbxtable"));
+        assertFalse(filter.accepts("shard12"));
+        assertFalse(filter.accepts("http_request_id"));
+        assertFalse(filter.accepts("region"));
+    }
+
+    @Test
+    public void testRegex() {
+        var filter = KeyFilter.compile(List.of(), List.of("regex:(trace|span)_?id"), errors::add);
+
+        assertFalse(filter.accepts("traceid"));
+        assertFalse(filter.accepts("span_id"));
+        assertTrue(filter.accepts("tenant_id"));
+    }
+
+    @Test
+    public void testInvalidRegexReportedAndSkipped() {
+        var filter = KeyFilter.compile(List.of(), List.of("regex:([", "secret"), errors::add);
+
+        assertEquals(1, errors.size());
+        assertFalse(filter.accepts("secret"));
+        assertTrue(filter.accepts("other"));
+    }
+
+    @Test
+    public void testGlobQuotesRegexCharacters() {
+        assertTrue(KeyFilter.compile(List.of("a+b*"), List.of(), errors::add).accepts("a+b.c"));
+        assertFalse(KeyFilter.compile(List.of("a+b*"), List.of(), errors::add).accepts("aab"));
+        assertEquals("\\Qdb.\\E.*", KeyFilter.globToRegex("db.*"));
+    }
+}
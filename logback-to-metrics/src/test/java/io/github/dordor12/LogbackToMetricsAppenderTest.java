@@ -6,17 +6,33 @@ import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 import static net.logstash.logback.argument.StructuredArguments.kv;
+import static net.logstash.logback.argument.StructuredArguments.entries;
 import static net.logstash.logback.marker.Markers.append;
+import static net.logstash.logback.marker.Markers.appendEntries;
 
 import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import ch.qos.logback.core.status.Status;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Statistic;
 import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.logstash.logback.marker.MapEntriesAppendingMarker;
+import net.logstash.logback.marker.ObjectAppendingMarker;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -206,6 +222,20 @@ public class LogbackToMetricsAppenderTest {
         assertTrue(tags.stream().anyMatch(a -> a.getKey().equals("endpoint") && a.getValue().equals("/api/v1")));
     }
 
+    @Test
+    public void testStructuredArgumentNumberAndTextShareSeries() {
+        var number = mockBasicEvent("sa number test");
+        when(number.getArgumentArray()).thenReturn(new Object[]{kv("status", 200), kv("elapsed", 5)});
+        var text = mockBasicEvent("sa number test");
+        when(text.getArgumentArray()).thenReturn(new Object[]{kv("status", "200"), kv("elapsed", "5")});
+
+        appender.append(number);
+        appender.append(text);
+
+        assertEquals(2.0, registry.get("logback.to.metrics.sa.number.test.counter").tag("status", "200").counter().count());
+        assertEquals(2, registry.get("logback.to.metrics.sa.number.test.elapsed.histogram").summary().count());
+    }
+
     @Test
     public void testStructuredArgumentWhitelistFiltering() {
         var event = mockBasicEvent("sa filter test");
@@ -219,6 +249,26 @@ public class LogbackToMetricsAppenderTest {
         assertFalse(tags.stream().anyMatch(a -> a.getKey().equals("blocked")));
     }
 
+    @Test
+    public void testPatternWhitelistAndBlacklist() {
+        var event = mockBasicEvent("pattern filter test");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("http_method", "GET", "http_request_id", "r-1", "region", "eu"));
+        when(event.getArgumentArray()).thenReturn(new Object[]{kv("db_time_ms", 4), kv("db_rows", 3)});
+        appender.addKvWhitelist("http_*");
+        appender.addKvBlacklist("regex:.*_id");
+        appender.addHistogramKvWhitelist("*_ms");
+        appender.start();
+
+        appender.append(event);
+
+        List<Tag> tags = registry.get("logback.to.metrics.pattern.filter.test.counter").meter().getId().getTags();
+        assertTrue(tags.stream().anyMatch(a -> a.getKey().equals("http_method")));
+        assertFalse(tags.stream().anyMatch(a -> a.getKey().equals("http_request_id")));
+        assertFalse(tags.stream().anyMatch(a -> a.getKey().equals("region")));
+        assertNotNull(registry.find("logback.to.metrics.pattern.filter.test.db_time_ms.histogram").summary());
+        assertNull(registry.find("logback.to.metrics.pattern.filter.test.db_rows.histogram").summary());
+    }
+
     // === LogstashMarker tests ===
 
     @Test
@@ -246,6 +296,92 @@ public class LogbackToMetricsAppenderTest {
         assertTrue(tags.stream().anyMatch(a -> a.getKey().equals("env") && a.getValue().equals("prod")));
     }
 
+    @Test
+    public void testNestedMarkerExtraction() {
+        var event = mockBasicEvent("nested marker test");
+        var marker = append("region", "us-east-1").and(append("env", "prod").and(append("zone", "b").and(append("latency", 9))));
+        when(event.getMarker()).thenReturn(marker);
+
+        appender.append(event);
+        appender.append(event);
+
+        var counter = registry.get("logback.to.metrics.nested.marker.test.counter").counter();
+        assertEquals(2.0, counter.count());
+        List<Tag> tags = counter.getId().getTags();
+        assertTrue(tags.stream().anyMatch(a -> a.getKey().equals("env") && a.getValue().equals("prod")));
+        assertTrue(tags.stream().anyMatch(a -> a.getKey().equals("zone") && a.getValue().equals("b")));
+        assertEquals(18.0, registry.get("logback.to.metrics.nested.marker.test.latency.histogram").summary().totalAmount());
+    }
+
+    // === Map entries marker tests ===
+
+    @Test
+    public void testEntriesArgumentExtraction() {
+        var event = mockBasicEvent("entries arg test");
+        when(event.getArgumentArray()).thenReturn(new Object[]{entries(Map.of("tenant", "acme", "blocked", "x"))});
+        appender.addKvWhitelist("tenant");
+        appender.addHistogramKvBlacklist("tenant");
+
+        appender.append(event);
+
+        List<Tag> tags = registry.get("logback.to.metrics.entries.arg.test.counter").meter().getId().getTags();
+        assertTrue(tags.stream().anyMatch(a -> a.getKey().equals("tenant") && a.getValue().equals("acme")));
+        assertFalse(tags.stream().anyMatch(a -> a.getKey().equals("blocked")));
+    }
+
+    @Test
+    public void testEntriesMarkerSeparatesSeriesByValue() {
+        var acme = mockBasicEvent("entries marker test");
+        when(acme.getMarker()).thenReturn(append("region", "eu").and(appendEntries(Map.of("tenant", "acme"))));
+        var other = mockBasicEvent("entries marker test");
+        when(other.getMarker()).thenReturn(append("region", "eu").and(appendEntries(Map.of("tenant", "other"))));
+
+        appender.append(acme);
+        appender.append(acme);
+        appender.append(other);
+
+        assertEquals(2.0, registry.get("logback.to.metrics.entries.marker.test.counter")
+                .tag("tenant", "acme").tag("region", "eu").counter().count());
+        assertEquals(1.0, registry.get("logback.to.metrics.entries.marker.test.counter")
+                .tag("tenant", "other").counter().count());
+    }
+
+    @Test
+    public void testEntriesHistogramsAndGauges() {
+        var event = mockBasicEvent("entries values test");
+        when(event.getMarker()).thenReturn(appendEntries(Map.of("duration", 42, "size", "7.5", "queue_depth", 3)));
+        appender.addGaugeKey("queue_depth");
+
+        appender.append(event);
+
+        assertEquals(42.0, registry.get("logback.to.metrics.entries.values.test.duration.histogram").summary().totalAmount());
+        assertEquals(7.5, registry.get("logback.to.metrics.entries.values.test.size.histogram").summary().totalAmount());
+        assertEquals(3.0, registry.get("logback.to.metrics.entries.values.test.queue_depth.gauge").gauge().value());
+        // Gauge keys never become tags
+        List<Tag> tags = registry.get("logback.to.metrics.entries.values.test.counter").meter().getId().getTags();
+        assertFalse(tags.stream().anyMatch(a -> a.getKey().equals("queue_depth")));
+    }
+
+    @Test
+    public void testObjectMarkerNativeValue() {
+        var event = mockBasicEvent("object marker test");
+        when(event.getMarker()).thenReturn(append("latency", 12.5).and(append("ids", List.of(1, 2))));
+        appender.addHistogramKvBlacklist("ids");
+
+        appender.append(event);
+
+        assertEquals(12.5, registry.get("logback.to.metrics.object.marker.test.latency.histogram").summary().totalAmount());
+        List<Tag> tags = registry.get("logback.to.metrics.object.marker.test.counter").meter().getId().getTags();
+        assertTrue(tags.stream().anyMatch(a -> a.getKey().equals("ids") && a.getValue().equals("[1, 2]")));
+    }
+
+    @Test
+    public void testMarkerValuesReadsEntries() {
+        var marker = (MapEntriesAppendingMarker) appendEntries(Map.of("k", "v"));
+        assertEquals(Map.of("k", "v"), MarkerValues.entries(marker));
+        assertEquals(5, MarkerValues.value((ObjectAppendingMarker) append("n", 5)));
+    }
+
     // === Histogram tests ===
 
     @Test
@@ -560,6 +696,896 @@ public class LogbackToMetricsAppenderTest {
         assertEquals(threadCount * eventsPerThread, (int) counter.count());
     }
 
+    @Test
+    public void testConcurrentFirstHitRegistersOnce() throws InterruptedException {
+        appender.start();
+        int threadCount = 16;
+        int eventsPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        CountDownLatch doneLatch = new CountDownLatch(threadCount);
+
+        for (int t = 0; t < threadCount; t++) {
+            executor.submit(() -> {
+                try {
+                    var event = mockBasicEvent("single flight event");
+                    when(event.getMDCPropertyMap()).thenReturn(Map.of("latency", "5"));
+                    startLatch.await();
+                    for (int i = 0; i < eventsPerThread; i++) {
+                        appender.append(event);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    doneLatch.countDown();
+                }
+            });
+        }
+
+        startLatch.countDown();
+        assertTrue(doneLatch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        int total = threadCount * eventsPerThread;
+        assertEquals(total, (int) registry.get("logback.to.metrics.single.flight.event.counter").counter().count());
+        assertEquals(total, registry.get("logback.to.metrics.single.flight.event.latency.histogram").summary().count());
+        assertEquals(1.0, registry.get("logback.to.metrics.appender.counters.created").counter().count());
+        assertEquals(1.0, registry.get("logback.to.metrics.appender.histograms.created").counter().count());
+        assertTrue(appender.getPendingCounters().isEmpty());
+        assertTrue(appender.getPendingHistograms().isEmpty());
+    }
+
+    // === Deferred registration tests ===
+
+    @Test
+    public void testDeferredRegistrationTransfersProvisionalCounts() {
+        appender.setEnableDeferredRegistration(true);
+        appender.start();
+        assertNotNull(appender.getBackgroundExecutor());
+
+        var event = mockBasicEvent("deferred event");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("size", "10"));
+        for (int i = 0; i < 5; i++) {
+            appender.append(event);
+        }
+
+        // stop() drains queued registrations
+        appender.stop();
+
+        assertEquals(5.0, registry.get("logback.to.metrics.deferred.event.counter").counter().count());
+        DistributionSummary histogram = registry.get("logback.to.metrics.deferred.event.size.histogram").summary();
+        assertEquals(5, histogram.count());
+        assertEquals(50.0, histogram.totalAmount());
+        assertTrue(appender.getPendingCounters().isEmpty());
+        assertTrue(appender.getPendingHistograms().isEmpty());
+    }
+
+    @Test
+    public void testDeferredRegistrationRunsOffLoggingThread() throws InterruptedException {
+        appender.setEnableDeferredRegistration(true);
+        appender.start();
+
+        // Block the registrar so the registration stays queued
+        CountDownLatch release = new CountDownLatch(1);
+        appender.getBackgroundExecutor().execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        var event = mockBasicEvent("deferred blocked event");
+        appender.append(event);
+        appender.append(event);
+
+        assertNull(registry.find("logback.to.metrics.deferred.blocked.event.counter").counter());
+        assertEquals(1, appender.getPendingCounters().size());
+
+        release.countDown();
+        appender.stop();
+
+        assertEquals(2.0, registry.get("logback.to.metrics.deferred.blocked.event.counter").counter().count());
+    }
+
+    @Test
+    public void testDeferredRegistrationFailureIsReported() {
+        String name = "logback.to.metrics.clashing.deferred.event.counter";
+        Tags tags = Tags.of("level", "INFO", "logger_name", "IncrementLogger", "thread_name", "IncrementThread");
+        // A gauge already holds the counter's id, so the counter cannot be registered
+        Metrics.globalRegistry.gauge(name, tags, 1.0);
+        try {
+            var context = new LoggerContext();
+            appender.setContext(context);
+            appender.setEnableDeferredRegistration(true);
+            appender.start();
+            appender.append(mockBasicEvent("clashing deferred event"));
+            appender.stop();
+
+            assertTrue(context.getStatusManager().getCopyOfStatusList().stream()
+                    .anyMatch(status -> status.getLevel() == Status.ERROR
+                            && status.getMessage().equals("Failed to register meter '" + name + "'")));
+            assertTrue(appender.getCounters().isEmpty());
+            assertTrue(appender.getPendingCounters().isEmpty());
+        } finally {
+            Metrics.globalRegistry.remove(new Meter.Id(name, tags, null, null, Meter.Type.GAUGE));
+        }
+    }
+
+    // === Counter storage tests ===
+
+    @Test
+    public void testHeapCounterStorageExposesFunctionCounter() {
+        appender.setCounterStorage(LogbackToMetricsAppender.CounterStorage.HEAP);
+        var event = mockBasicEvent("heap storage event");
+
+        appender.append(event);
+        appender.append(event);
+        appender.append(event);
+
+        assertEquals(3.0, registry.get("logback.to.metrics.heap.storage.event.counter").functionCounter().count());
+        assertTrue(appender.getCounters().values().stream().allMatch(c -> c instanceof SlotCounter));
+    }
+
+    @Test
+    public void testOffHeapCounterStorageExposesFunctionCounter() {
+        appender.setCounterStorage(LogbackToMetricsAppender.CounterStorage.OFF_HEAP);
+        var event = mockBasicEvent("off heap storage event");
+
+        appender.append(event);
+        appender.append(event);
+
+        assertEquals(2.0, registry.get("logback.to.metrics.off.heap.storage.event.counter").functionCounter().count());
+        assertTrue(appender.getSeriesStore().isOffHeap());
+    }
+
+    @Test
+    public void testCounterStorageReRegistrationTransfersCounts() {
+        appender.setCounterStorage(LogbackToMetricsAppender.CounterStorage.HEAP);
+        appender.setEnableCardinalityProtection(true);
+        appender.setMaxTagValueCardinality(3);
+
+        for (int i = 0; i < 4; i++) {
+            var event = mockBasicEvent("slot reregister test");
+            when(event.getMDCPropertyMap()).thenReturn(Map.of("highCard", "val_" + i, "stableTag", "stable"));
+            appender.append(event);
+        }
+
+        assertTrue(appender.getAutoBlacklistedKeys().contains("highCard"));
+        var counters = registry.find("logback.to.metrics.slot.reregister.test.counter").functionCounters();
+        assertEquals(1, counters.size());
+        assertEquals(4.0, counters.iterator().next().count());
+    }
+
+    // === Series index tests ===
+
+    @Test
+    public void testSeriesIndexServesCountersAndHistograms() {
+        appender.setEnableSeriesIndex(true);
+        var event = mockBasicEvent("indexed event");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("duration", "7"));
+
+        for (int i = 0; i < 3; i++) {
+            appender.append(event);
+        }
+
+        assertEquals(3.0, registry.get("logback.to.metrics.indexed.event.counter").counter().count());
+        assertEquals(3, registry.get("logback.to.metrics.indexed.event.duration.histogram").summary().count());
+        assertEquals(2, appender.getSeriesIndex().size());
+    }
+
+    @Test
+    public void testSeriesIndexDropsReRegisteredCounters() {
+        appender.setEnableSeriesIndex(true);
+        appender.setEnableAutoHistograms(false);
+        appender.setEnableCardinalityProtection(true);
+        appender.setMaxTagValueCardinality(2);
+
+        for (int i = 0; i < 3; i++) {
+            var event = mockBasicEvent("indexed reregister test");
+            when(event.getMDCPropertyMap()).thenReturn(Map.of("highCard", "val_" + i));
+            appender.append(event);
+            appender.append(event);
+        }
+
+        assertTrue(appender.getAutoBlacklistedKeys().contains("highCard"));
+        var event = mockBasicEvent("indexed reregister test");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("highCard", "val_0"));
+        appender.append(event);
+
+        var counter = registry.get("logback.to.metrics.indexed.reregister.test.counter").counter();
+        assertTrue(counter.getId().getTags().stream().noneMatch(t -> t.getKey().equals("highCard")));
+        assertEquals(7.0, counter.count());
+    }
+
+    // === Lookup cache tests ===
+
+    @Test
+    public void testLookupCacheCountsRepeatedTemplate() {
+        appender.setEnableLookupCache(true);
+        var event = mockBasicEvent("cached event");
+
+        for (int i = 0; i < 5; i++) {
+            appender.append(event);
+        }
+
+        assertEquals(5.0, registry.get("logback.to.metrics.cached.event.counter").counter().count());
+    }
+
+    @Test
+    public void testLookupCacheInvalidatedByReRegistration() {
+        appender.setEnableLookupCache(true);
+        appender.setEnableAutoHistograms(false);
+        appender.setEnableCardinalityProtection(true);
+        appender.setMaxTagValueCardinality(2);
+
+        for (int i = 0; i < 3; i++) {
+            var event = mockBasicEvent("cached reregister test");
+            when(event.getMDCPropertyMap()).thenReturn(Map.of("highCard", "val_" + i));
+            appender.append(event);
+            appender.append(event);
+        }
+
+        assertTrue(appender.getAutoBlacklistedKeys().contains("highCard"));
+        var event = mockBasicEvent("cached reregister test");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("highCard", "val_0"));
+        appender.append(event);
+
+        var counter = registry.get("logback.to.metrics.cached.reregister.test.counter").counter();
+        assertTrue(counter.getId().getTags().stream().noneMatch(t -> t.getKey().equals("highCard")));
+        assertEquals(7.0, counter.count());
+    }
+
+    // === Tiered histogram backend tests ===
+
+    @Test
+    public void testTieredBackendStartsWithTierMeter() {
+        appender.setHistogramBackend(LogbackToMetricsAppender.HistogramBackend.TIERED);
+        appender.setHistogramPromotionRate(1_000_000L);
+        var event = mockBasicEvent("tiered event");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("rows", "8"));
+        appender.append(event);
+        appender.append(event);
+
+        String name = "logback.to.metrics.tiered.event.rows.histogram";
+        assertNull(registry.find(name).summary());
+        assertNull(registry.find(name + ".count").meter());
+        Meter tier = registry.get(name).meter();
+        assertEquals(Meter.Type.DISTRIBUTION_SUMMARY, tier.getId().getType());
+        Map<Statistic, Double> measured = new EnumMap<>(Statistic.class);
+        tier.measure().forEach(m -> measured.put(m.getStatistic(), m.getValue()));
+        assertEquals(Map.of(Statistic.COUNT, 2.0, Statistic.TOTAL, 16.0, Statistic.MAX, 8.0), measured);
+    }
+
+    @Test
+    public void testTieredBackendPromotesHotSeries() {
+        appender.setHistogramBackend(LogbackToMetricsAppender.HistogramBackend.TIERED);
+        appender.setHistogramPromotionRate(5L);
+        var field = new HistogramField();
+        field.setName("rows");
+        field.setPercentiles("0.5");
+        appender.addHistogramField(field);
+        var event = mockBasicEvent("hot tiered event");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("rows", "8"));
+        for (int i = 0; i < 8; i++) {
+            appender.append(event);
+        }
+
+        String name = "logback.to.metrics.hot.tiered.event.rows.histogram";
+        // The tier-one meter was swapped out, only the full summary remains under the name
+        assertEquals(1, registry.find(name).meters().size());
+        DistributionSummary summary = registry.get(name).summary();
+        // Values recorded after the promotion
+        assertEquals(3, summary.count());
+        assertEquals(1, summary.takeSnapshot().percentileValues().length);
+    }
+
+    @Test
+    public void testTieredPromotionRunsOnWorkerWhenDeferred() {
+        appender.setHistogramBackend(LogbackToMetricsAppender.HistogramBackend.TIERED);
+        appender.setHistogramPromotionRate(5L);
+        appender.setEnableDeferredRegistration(true);
+        appender.start();
+        var event = mockBasicEvent("deferred tiered event");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("rows", "8"));
+        for (int i = 0; i < 5; i++) {
+            appender.append(event);
+        }
+        // Drains the queued registration and promotion
+        appender.stop();
+
+        DistributionSummary summary = registry.get("logback.to.metrics.deferred.tiered.event.rows.histogram").summary();
+        assertNotNull(summary);
+    }
+
+    // === Histogram field configuration tests ===
+
+    @Test
+    public void testHistogramFieldAppliesDistributionSettings() {
+        var field = new HistogramField();
+        field.setName("payload");
+        field.setBaseUnit("bytes");
+        field.setPercentiles("0.5,0.99");
+        field.setServiceLevelObjectives("100,1000");
+        appender.addHistogramField(field);
+        appender.start();
+
+        var event = mockBasicEvent("configured event");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("payload", "250"));
+        appender.append(event);
+
+        DistributionSummary histogram = registry.get("logback.to.metrics.configured.event.payload.histogram").summary();
+        assertEquals("bytes", histogram.getId().getBaseUnit());
+        var snapshot = histogram.takeSnapshot();
+        assertEquals(2, snapshot.percentileValues().length);
+        assertEquals(2, snapshot.histogramCounts().length);
+    }
+
+    @Test
+    public void testTimerSuffixRecordsTimer() {
+        appender.setEnableTimerSuffixes(true);
+        var event = mockBasicEvent("timed event");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("response_time_ms", "250", "items", "3"));
+        appender.append(event);
+        appender.append(event);
+
+        Timer timer = registry.get("logback.to.metrics.timed.event.response_time_ms.histogram").timer();
+        assertEquals(2, timer.count());
+        assertEquals(500.0, timer.totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(250.0, timer.max(TimeUnit.MILLISECONDS));
+        assertNotNull(registry.find("logback.to.metrics.timed.event.items.histogram").summary());
+    }
+
+    @Test
+    public void testHistogramFieldOverridesTimerSuffix() {
+        appender.setEnableTimerSuffixes(true);
+        var field = new HistogramField();
+        field.setName("queue_ms");
+        field.setTimer(false);
+        appender.addHistogramField(field);
+
+        var event = mockBasicEvent("untimed event");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("queue_ms", "12"));
+        appender.append(event);
+
+        assertNotNull(registry.find("logback.to.metrics.untimed.event.queue_ms.histogram").summary());
+        assertNull(registry.find("logback.to.metrics.untimed.event.queue_ms.histogram").timer());
+    }
+
+    @Test
+    public void testHistogramFieldFromLogbackXml() throws Exception {
+        String xml = "<configuration>"
+                + "<appender name=\"METRICS\" class=\"io.github.dordor12.LogbackToMetricsAppender\">"
+                + "<enableAutoHistograms>true</enableAutoHistograms>"
+                + "<histogramField><name>latency_ns</name><timer>true</timer>"
+                + "<percentiles>0.9</percentiles><maximumExpectedValue>5000000</maximumExpectedValue></histogramField>"
+                + "</appender>"
+                + "<root level=\"INFO\"><appender-ref ref=\"METRICS\"/></root>"
+                + "</configuration>";
+        var context = new LoggerContext();
+        var configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        configurator.doConfigure(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        var configured = (LogbackToMetricsAppender) context.getLogger("ROOT").getAppender("METRICS");
+        assertEquals(1, configured.getHistogramFields().size());
+        HistogramField field = configured.getHistogramFields().get(0);
+        assertEquals("latency_ns", field.getName());
+        assertTrue(field.getTimer());
+        assertEquals("0.9", field.getPercentiles());
+        assertEquals(5_000_000.0, field.getMaximumExpectedValue());
+        configured.stop();
+    }
+
+    // === Argument mapping tests ===
+
+    @Test
+    public void testArgumentMappingTagsAndHistograms() {
+        var mapping = new ArgumentMapping();
+        mapping.setTemplate("Order {} processed in {} ms");
+        mapping.setTags("0=status");
+        mapping.setHistograms("1=duration_ms");
+        appender.addArgumentMapping(mapping);
+
+        var shipped = mockBasicEvent("Order {} processed in {} ms");
+        when(shipped.getArgumentArray()).thenReturn(new Object[]{"SHIPPED", 42L});
+        var failed = mockBasicEvent("Order {} processed in {} ms");
+        when(failed.getArgumentArray()).thenReturn(new Object[]{"FAILED", "7"});
+        appender.append(shipped);
+        appender.append(shipped);
+        appender.append(failed);
+
+        String counter = "logback.to.metrics.Order.{}.processed.in.{}.ms.counter";
+        assertEquals(2.0, registry.get(counter).tag("status", "SHIPPED").counter().count());
+        assertEquals(1.0, registry.get(counter).tag("status", "FAILED").counter().count());
+        DistributionSummary duration = registry.get("logback.to.metrics.Order.{}.processed.in.{}.ms.duration_ms.histogram")
+                .tag("status", "SHIPPED").summary();
+        assertEquals(2, duration.count());
+        assertEquals(84.0, duration.totalAmount());
+    }
+
+    @Test
+    public void testArgumentMappingIgnoresOtherTemplatesAndMissingArguments() {
+        var mapping = new ArgumentMapping();
+        mapping.setTemplate("Job {} done");
+        mapping.setTags("0=job,3=missing");
+        appender.addArgumentMapping(mapping);
+
+        var mapped = mockBasicEvent("Job {} done");
+        when(mapped.getArgumentArray()).thenReturn(new Object[]{"reindex"});
+        var other = mockBasicEvent("Task {} done");
+        when(other.getArgumentArray()).thenReturn(new Object[]{"reindex"});
+        appender.append(mapped);
+        appender.append(other);
+
+        var jobCounter = registry.get("logback.to.metrics.Job.{}.done.counter").counter();
+        assertEquals("reindex", jobCounter.getId().getTag("job"));
+        assertNull(jobCounter.getId().getTag("missing"));
+        assertNull(registry.get("logback.to.metrics.Task.{}.done.counter").counter().getId().getTag("job"));
+    }
+
+    @Test
+    public void testInvalidArgumentMappingIsIgnored() {
+        var mapping = new ArgumentMapping();
+        mapping.setTemplate("Broken {}");
+        mapping.setTags("status");
+        appender.addArgumentMapping(mapping);
+
+        var event = mockBasicEvent("Broken {}");
+        when(event.getArgumentArray()).thenReturn(new Object[]{"x"});
+        appender.append(event);
+
+        assertEquals(1.0, registry.get("logback.to.metrics.Broken.{}.counter").counter().count());
+    }
+
+    // === Tag normalization tests ===
+
+    @Test
+    public void testTagValuesNormalizedBeforeHashing() {
+        var status = new TagNormalizer();
+        status.setKey("status");
+        status.setType("status_class");
+        var path = new TagNormalizer();
+        path.setKey("path");
+        path.setType("path_ids");
+        appender.addTagNormalizer(status);
+        appender.addTagNormalizer(path);
+
+        var first = mockBasicEvent("normalized tags test");
+        when(first.getArgumentArray()).thenReturn(new Object[]{kv("status", 200), kv("path", "/users/1/orders/7")});
+        var second = mockBasicEvent("normalized tags test");
+        when(second.getArgumentArray()).thenReturn(new Object[]{kv("status", 204), kv("path", "/users/2/orders/8")});
+
+        appender.append(first);
+        appender.append(second);
+
+        var counter = registry.get("logback.to.metrics.normalized.tags.test.counter")
+                .tag("status", "2xx").tag("path", "/users/{id}/orders/{id}").counter();
+        assertEquals(2.0, counter.count());
+        assertEquals(1, registry.find("logback.to.metrics.normalized.tags.test.counter").counters().size());
+    }
+
+    @Test
+    public void testNormalizedKeyIsNotRoutedAsNumeric() {
+        var status = new TagNormalizer();
+        status.setKey("status");
+        status.setType("status_class");
+        appender.addTagNormalizer(status);
+        appender.setEnableNumericFieldRouting(true);
+        var event = mockBasicEvent("normalized routing test");
+        when(event.getArgumentArray()).thenReturn(new Object[]{kv("status", 503)});
+
+        appender.append(event);
+
+        assertEquals(1.0, registry.get("logback.to.metrics.normalized.routing.test.counter").tag("status", "5xx").counter().count());
+    }
+
+    // === Rollup tests ===
+
+    private static Rollup rollup(String keep) {
+        var rollup = new Rollup();
+        rollup.setKeep(keep);
+        return rollup;
+    }
+
+    @Test
+    public void testRollupCountsAcrossDroppedTags() {
+        appender.addRollup(rollup("level"));
+        appender.addRollup(rollup(null));
+        for (int i = 0; i < 5; i++) {
+            var event = mockBasicEvent("rollup test");
+            when(event.getMDCPropertyMap()).thenReturn(Map.of("user_id", "u" + i));
+            appender.append(event);
+        }
+
+        assertEquals(5, registry.find("logback.to.metrics.rollup.test.counter").counters().size());
+        var byLevel = registry.get("logback.to.metrics.rollup.test.by_level.counter").counter();
+        assertEquals(5.0, byLevel.count());
+        assertEquals(List.of(Tag.of("level", "INFO")), byLevel.getId().getTags());
+        var total = registry.get("logback.to.metrics.rollup.test.total.counter").counter();
+        assertEquals(5.0, total.count());
+        assertTrue(total.getId().getTags().isEmpty());
+    }
+
+    @Test
+    public void testRollupReRegisteredWithoutBlacklistedKey() {
+        appender.setEnableAutoHistograms(false);
+        appender.setEnableCardinalityProtection(true);
+        appender.setMaxTagValueCardinality(2);
+        appender.addRollup(rollup("highCard"));
+        for (int i = 0; i < 3; i++) {
+            var event = mockBasicEvent("rollup blacklist test");
+            when(event.getMDCPropertyMap()).thenReturn(Map.of("highCard", "val_" + i));
+            appender.append(event);
+        }
+        assertTrue(appender.getAutoBlacklistedKeys().contains("highCard"));
+        int series = appender.getCounters().size();
+
+        var event = mockBasicEvent("rollup blacklist test");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("highCard", "val_0"));
+        appender.append(event);
+
+        // The re-registered keys are the ones the hot path computes, so no series is added
+        assertEquals(series, appender.getCounters().size());
+        var rollupCounter = registry.get("logback.to.metrics.rollup.blacklist.test.by_highCard.counter").counter();
+        assertTrue(rollupCounter.getId().getTags().isEmpty());
+        assertEquals(4.0, rollupCounter.count());
+    }
+
+    @Test
+    public void testRollupSeriesPerKeptValue() {
+        appender.addRollup(rollup("level"));
+        var info = mockBasicEvent("rollup level test");
+        var error = mockBasicEvent("rollup level test");
+        when(error.getLevel()).thenReturn(Level.ERROR);
+
+        appender.append(info);
+        appender.append(error);
+        appender.append(error);
+
+        assertEquals(1.0, registry.get("logback.to.metrics.rollup.level.test.by_level.counter").tag("level", "INFO").counter().count());
+        assertEquals(2.0, registry.get("logback.to.metrics.rollup.level.test.by_level.counter").tag("level", "ERROR").counter().count());
+    }
+
+    @Test
+    public void testRollupsFromLogbackXml() throws Exception {
+        String xml = "<configuration>"
+                + "<appender name=\"METRICS\" class=\"io.github.dordor12.LogbackToMetricsAppender\">"
+                + "<rollup><keep>level</keep></rollup>"
+                + "<rollup><name>total</name></rollup>"
+                + "</appender>"
+                + "<root level=\"INFO\"><appender-ref ref=\"METRICS\"/></root>"
+                + "</configuration>";
+        var context = new LoggerContext();
+        var configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        configurator.doConfigure(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        var configured = (LogbackToMetricsAppender) context.getLogger("ROOT").getAppender("METRICS");
+        assertEquals(2, configured.getRollups().size());
+        assertEquals("level", configured.getRollups().get(0).getKeep());
+        assertEquals("total", configured.getRollups().get(1).getName());
+        configured.stop();
+    }
+
+    // === Numeric field routing tests ===
+
+    @Test
+    public void testNumericFieldsRoutedToHistograms() {
+        appender.setEnableNumericFieldRouting(true);
+        for (int i = 0; i < 10; i++) {
+            var event = mockBasicEvent("numeric routing test");
+            when(event.getArgumentArray()).thenReturn(new Object[]{kv("endpoint", "/orders"), kv("response_time_ms", 10 + i)});
+            appender.append(event);
+        }
+
+        var counter = registry.get("logback.to.metrics.numeric.routing.test.counter").counter();
+        assertEquals(10.0, counter.count());
+        assertFalse(counter.getId().getTags().stream().anyMatch(t -> t.getKey().equals("response_time_ms")));
+        assertTrue(counter.getId().getTags().stream().anyMatch(t -> t.getKey().equals("endpoint")));
+        assertEquals(10, registry.get("logback.to.metrics.numeric.routing.test.response_time_ms.histogram").summary().count());
+    }
+
+    @Test
+    public void testMixedFieldStaysTag() {
+        appender.setEnableNumericFieldRouting(true);
+        var text = mockBasicEvent("numeric routing mixed test");
+        when(text.getMDCPropertyMap()).thenReturn(Map.of("status", "OK"));
+        var number = mockBasicEvent("numeric routing mixed test");
+        when(number.getMDCPropertyMap()).thenReturn(Map.of("status", "200"));
+
+        appender.append(text);
+        appender.append(number);
+
+        assertEquals(1.0, registry.get("logback.to.metrics.numeric.routing.mixed.test.counter").tag("status", "200").counter().count());
+    }
+
+    @Test
+    public void testNumericRoutingYieldsToWhitelist() {
+        appender.setEnableNumericFieldRouting(true);
+        appender.addKvWhitelist("status");
+        var event = mockBasicEvent("numeric routing whitelist test");
+        when(event.getArgumentArray()).thenReturn(new Object[]{kv("status", 200)});
+
+        appender.append(event);
+
+        assertEquals(1.0, registry.get("logback.to.metrics.numeric.routing.whitelist.test.counter").tag("status", "200").counter().count());
+    }
+
+    // === Unit parsing tests ===
+
+    @Test
+    public void testUnitSuffixesScaledToBaseUnit() {
+        appender.setEnableUnitParsing(true);
+        var event = mockBasicEvent("unit parsing test");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("elapsed", "1.5s", "payload", "4KB", "rows", "1,024"));
+
+        appender.append(event);
+
+        assertEquals(1500.0, registry.get("logback.to.metrics.unit.parsing.test.elapsed.histogram").summary().totalAmount());
+        assertEquals(4096.0, registry.get("logback.to.metrics.unit.parsing.test.payload.histogram").summary().totalAmount());
+        assertEquals(1024.0, registry.get("logback.to.metrics.unit.parsing.test.rows.histogram").summary().totalAmount());
+    }
+
+    @Test
+    public void testUnitSuffixesNotNumericByDefault() {
+        var event = mockBasicEvent("unit parsing default test");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("elapsed", "12ms"));
+
+        appender.append(event);
+
+        assertNull(registry.find("logback.to.metrics.unit.parsing.default.test.elapsed.histogram").summary());
+    }
+
+    @Test
+    public void testConfiguredTimeBaseUnit() {
+        appender.setEnableUnitParsing(true);
+        appender.setTimeBaseUnit("s");
+        var event = mockBasicEvent("unit parsing base test");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("elapsed", "250 ms"));
+
+        appender.append(event);
+
+        assertEquals(0.25, registry.get("logback.to.metrics.unit.parsing.base.test.elapsed.histogram").summary().totalAmount());
+    }
+
+    // === Name sanitizer tests ===
+
+    @Test
+    public void testNameSanitizerProducesBackendValidNames() {
+        appender.setEnableNameSanitizer(true);
+        String template = "GET /api/v1/orders: {} \"ok\" ✓";
+        var event = mockBasicEvent(template);
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("size", "10"));
+        appender.append(event);
+        appender.append(mockBasicEvent("basic counter event"));
+
+        String name = String.format("logback.to.metrics.GET.api.v1.orders.ok.%08x", template.hashCode());
+        assertEquals(1.0, registry.get(name + ".counter").counter().count());
+        assertEquals(1, registry.get(name + ".size.histogram").summary().count());
+        // Plain templates keep their existing names
+        assertEquals(1.0, registry.get("logback.to.metrics.basic.counter.event.counter").counter().count());
+    }
+
+    @Test
+    public void testNameSanitizerDisambiguatesCollisions() {
+        appender.setEnableNameSanitizer(true);
+        appender.setEnableAutoHistograms(false);
+        appender.append(mockBasicEvent("Order {} done"));
+        appender.append(mockBasicEvent("Order: done"));
+        appender.append(mockBasicEvent("Order done"));
+
+        // Only the template that maps back to its name keeps it, whatever the arrival order
+        assertEquals(1.0, registry.get("logback.to.metrics.Order.done.counter").counter().count());
+        for (String template : List.of("Order {} done", "Order: done")) {
+            String suffixed = String.format("logback.to.metrics.Order.done.%08x.counter", template.hashCode());
+            assertEquals(1.0, registry.get(suffixed).counter().count());
+        }
+    }
+
+    // === Template mining tests ===
+
+    @Test
+    public void testTemplateMiningGroupsConcatenatedMessages() {
+        appender.setEnableTemplateMining(true);
+        for (int user = 0; user < 3; user++) {
+            appender.append(mockBasicEvent("User " + (1000 + user) + " logged in from 10.0.0." + user));
+        }
+        appender.append(mockBasicEvent("Cache warmed"));
+
+        assertEquals(3.0, registry.get("logback.to.metrics.User.{}.logged.in.from.{}.counter").counter().count());
+        assertEquals(1.0, registry.get("logback.to.metrics.Cache.warmed.counter").counter().count());
+        assertEquals(2, appender.getTemplateMiner().size());
+    }
+
+    @Test
+    public void testTemplateMiningKeepsSeriesAsClusterGeneralizes() {
+        appender.setEnableTemplateMining(true);
+        for (String region : List.of("alpha", "beta", "alpha", "gamma")) {
+            appender.append(mockBasicEvent("Cache region " + region + " evicted"));
+        }
+
+        // One series under the key fixed by the first message, none left behind
+        assertEquals(4.0, registry.get("logback.to.metrics.Cache.region.alpha.evicted.counter").counter().count());
+        assertEquals(1, appender.getCounters().size());
+    }
+
+    @Test
+    public void testTemplateMiningSkipsParameterizedMessages() {
+        appender.setEnableTemplateMining(true);
+        var event = mockBasicEvent("Order 42 {}");
+        when(event.getArgumentArray()).thenReturn(new Object[]{"x"});
+        appender.append(event);
+
+        assertEquals(1.0, registry.get("logback.to.metrics.Order.42.{}.counter").counter().count());
+    }
+
+    // === Exception tag tests ===
+
+    @Test
+    public void testExceptionTags() {
+        appender.setEnableExceptionTag(true);
+        appender.setEnableRootCauseTag(true);
+        var failed = mockBasicEvent("request failed");
+        when(failed.getThrowableProxy()).thenReturn(
+                new ThrowableProxy(new IllegalStateException("wrapped", new IOException("disk"))));
+        var ok = mockBasicEvent("request failed");
+        appender.append(failed);
+        appender.append(ok);
+
+        String name = "logback.to.metrics.request.failed.counter";
+        assertEquals(1.0, registry.get(name)
+                .tag("exception", "java.lang.IllegalStateException")
+                .tag("root_cause", "java.io.IOException").counter().count());
+        assertEquals(1.0, registry.get(name).tag("exception", "none").tag("root_cause", "none").counter().count());
+    }
+
+    @Test
+    public void testExceptionTagNeverReadsStackFrames() {
+        appender.setEnableExceptionTag(true);
+        appender.setEnableRootCauseTag(true);
+        var proxy = mock(IThrowableProxy.class);
+        when(proxy.getClassName()).thenReturn("com.example.StormException");
+        var event = mockBasicEvent("storm event");
+        when(event.getThrowableProxy()).thenReturn(proxy);
+        for (int i = 0; i < 3; i++) {
+            appender.append(event);
+        }
+
+        assertEquals(3.0, registry.get("logback.to.metrics.storm.event.counter")
+                .tag("root_cause", "com.example.StormException").counter().count());
+        verify(proxy, never()).getStackTraceElementProxyArray();
+    }
+
+    // === Gauge tests ===
+
+    @Test
+    public void testGaugeKeyRecordsLastValue() {
+        appender.addGaugeKey("queue_depth");
+        var first = mockBasicEvent("queue polled");
+        when(first.getMDCPropertyMap()).thenReturn(Map.of("queue_depth", "12", "queue", "orders"));
+        var second = mockBasicEvent("queue polled");
+        when(second.getMDCPropertyMap()).thenReturn(Map.of("queue_depth", "3", "queue", "orders"));
+        appender.append(first);
+        appender.append(second);
+
+        var gauge = registry.get("logback.to.metrics.queue.polled.queue_depth.gauge").tag("queue", "orders").gauge();
+        assertEquals(3.0, gauge.value());
+        // Gauge keys are neither tags nor histograms
+        assertEquals(2.0, registry.get("logback.to.metrics.queue.polled.counter").counter().count());
+        assertNull(registry.find("logback.to.metrics.queue.polled.queue_depth.histogram").summary());
+    }
+
+    @Test
+    public void testGaugeMinMax() {
+        appender.addGaugeKey("pool_active");
+        appender.setEnableGaugeMinMax(true);
+        for (String value : new String[]{"5", "9", "2", "6"}) {
+            var event = mockBasicEvent("pool sampled");
+            when(event.getMDCPropertyMap()).thenReturn(Map.of("pool_active", value));
+            appender.append(event);
+        }
+
+        String name = "logback.to.metrics.pool.sampled.pool_active.gauge";
+        assertEquals(6.0, registry.get(name).gauge().value());
+        assertEquals(2.0, registry.get(name + ".min").gauge().value());
+        assertEquals(9.0, registry.get(name + ".max").gauge().value());
+    }
+
+    @Test
+    public void testGaugeRegistrationDeferred() {
+        appender.addGaugeKey("queue_depth");
+        appender.setEnableDeferredRegistration(true);
+        appender.start();
+        for (String value : new String[]{"7", "4"}) {
+            var event = mockBasicEvent("queue deferred");
+            when(event.getMDCPropertyMap()).thenReturn(Map.of("queue_depth", value));
+            appender.append(event);
+        }
+        // Drains the queued registration
+        appender.stop();
+
+        assertEquals(4.0, registry.get("logback.to.metrics.queue.deferred.queue_depth.gauge").gauge().value());
+        assertTrue(appender.getPendingGauges().isEmpty());
+        assertEquals(1, appender.getGauges().size());
+    }
+
+    @Test
+    public void testMaxGauges() {
+        appender.addGaugeKey("queue_depth");
+        appender.setMaxGauges(1L);
+        for (String queue : new String[]{"orders", "payments"}) {
+            var event = mockBasicEvent("queue limited");
+            when(event.getMDCPropertyMap()).thenReturn(Map.of("queue_depth", "1", "queue", queue));
+            appender.append(event);
+        }
+
+        assertEquals(1, registry.find("logback.to.metrics.queue.limited.queue_depth.gauge").gauges().size());
+    }
+
+    // === Histogram batching tests ===
+
+    @Test
+    public void testHistogramBatchingMergesOnStop() {
+        appender.setEnableHistogramBatching(true);
+        var event = mockBasicEvent("batched event");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("latency", "5"));
+        for (int i = 0; i < 3; i++) {
+            appender.append(event);
+        }
+
+        DistributionSummary histogram = registry.get("logback.to.metrics.batched.event.latency.histogram").summary();
+        // All values wait in the logging thread's buffer
+        assertEquals(0, histogram.count());
+
+        appender.stop();
+
+        assertEquals(3, histogram.count());
+        assertEquals(15.0, histogram.totalAmount());
+        assertEquals(5.0, histogram.max());
+    }
+
+    @Test
+    public void testHistogramBatchingFlushesOnInterval() throws InterruptedException {
+        appender.setEnableHistogramBatching(true);
+        appender.setHistogramFlushIntervalMillis(10);
+        appender.start();
+        var event = mockBasicEvent("interval batched event");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("latency", "5"));
+        for (int i = 0; i < 4; i++) {
+            appender.append(event);
+        }
+
+        DistributionSummary histogram = registry.get("logback.to.metrics.interval.batched.event.latency.histogram").summary();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (histogram.count() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(4, histogram.count());
+        assertEquals(0, appender.getHistogramBatcher().buffered());
+    }
+
+    // === Sketch histogram backend tests ===
+
+    @Test
+    public void testSketchBackendExposesFunctionMeters() {
+        appender.setHistogramBackend(LogbackToMetricsAppender.HistogramBackend.SKETCH);
+        var event = mockBasicEvent("sketch event");
+        when(event.getMDCPropertyMap()).thenReturn(Map.of("bytes", "100"));
+        for (int i = 0; i < 4; i++) {
+            appender.append(event);
+        }
+
+        String name = "logback.to.metrics.sketch.event.bytes.histogram";
+        assertNull(registry.find(name).summary());
+        assertEquals(4.0, registry.get(name + ".count").functionCounter().count());
+        assertEquals(400.0, registry.get(name + ".sum").functionCounter().count());
+        assertEquals(100.0, registry.get(name + ".max").gauge().value());
+        assertEquals(100.0, registry.get(name + ".percentile").tag("phi", "0.99").gauge().value(), 100.0 * 0.02);
+        assertEquals(3, registry.find(name + ".percentile").gauges().size());
+    }
+
     // === Cardinality Protection tests ===
 
     @Test
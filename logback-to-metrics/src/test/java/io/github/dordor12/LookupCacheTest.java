@@ -0,0 +1,60 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LookupCacheTest {
+
+    @Test
+    public void testHitRequiresSameTemplateInstance() {
+        var cache = new LookupCache<Object>();
+        String template = "template";
+        Object handle = new Object();
+
+        cache.put(template, 7, handle, cache.epoch());
+
+        assertSame(handle, cache.get(template, 7));
+        assertNull(cache.get(template, 8));
+        assertNull(cache.get(new String("template"), 7));
+    }
+
+    @Test
+    public void testInvalidateDropsEntries() {
+        var cache = new LookupCache<Object>();
+        String template = "template";
+        cache.put(template, 1, new Object(), cache.epoch());
+
+        cache.invalidate();
+
+        assertNull(cache.get(template, 1));
+    }
+
+    @Test
+    public void testEntryFromBeforeInvalidationIsStale() {
+        var cache = new LookupCache<Object>();
+        String template = "template";
+        int observed = cache.epoch();
+
+        cache.invalidate();
+        cache.put(template, 1, new Object(), observed);
+
+        assertNull(cache.get(template, 1));
+    }
+
+    @Test
+    public void testEntriesArePrivateToThread() throws InterruptedException {
+        var cache = new LookupCache<Object>();
+        String template = "template";
+        cache.put(template, 1, new Object(), cache.epoch());
+
+        var seen = new AtomicReference<Object>("unset");
+        Thread other = new Thread(() -> seen.set(cache.get(template, 1)));
+        other.start();
+        other.join();
+
+        assertNull(seen.get());
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Marker;
+
+import java.util.List;
+
+import static net.logstash.logback.marker.Markers.append;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MarkerGraphTest {
+
+    @Test
+    public void testCollectsNestedReferencesBreadthFirst() {
+        Marker c = append("c", 3);
+        Marker b = append("b", 2).and(c);
+        Marker root = append("a", 1).and(b).and(append("d", 4));
+
+        MarkerGraph graph = MarkerGraph.collect(root);
+
+        assertEquals(4, graph.size());
+        assertSame(root, graph.get(0));
+        assertSame(b, graph.get(1));
+        assertSame(c, graph.get(3));
+    }
+
+    @Test
+    public void testSharedReferenceVisitedOnce() {
+        Marker shared = append("shared", 1);
+        Marker root = append("a", 1).and(append("b", 2).and(shared)).and(append("c", 3).and(shared));
+
+        assertEquals(4, MarkerGraph.collect(root).size());
+    }
+
+    @Test
+    public void testCycleTerminates() {
+        Marker first = mock(Marker.class);
+        Marker second = mock(Marker.class);
+        when(first.hasReferences()).thenReturn(true);
+        when(second.hasReferences()).thenReturn(true);
+        when(first.iterator()).thenAnswer(i -> List.of(second).iterator());
+        when(second.iterator()).thenAnswer(i -> List.of(first, second).iterator());
+
+        MarkerGraph graph = MarkerGraph.collect(first);
+
+        assertEquals(2, graph.size());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        Marker root = append("root", 0);
+        for (int i = 0; i < MarkerGraph.MAX_MARKERS + 10; i++) {
+            root.add(append("k" + i, i));
+        }
+
+        assertEquals(MarkerGraph.MAX_MARKERS, MarkerGraph.collect(root).size());
+    }
+
+    @Test
+    public void testCollectResetsPreviousWalk() {
+        Marker root = append("a", 1).and(append("b", 2));
+        MarkerGraph.collect(root);
+        root.add(append("c", 3));
+
+        assertEquals(3, MarkerGraph.collect(root).size());
+        assertEquals(0, MarkerGraph.collect(null).size());
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricNameSanitizerTest {
+
+    @Test
+    public void testCanonicalName() {
+        var sanitizer = new MetricNameSanitizer(".", 100);
+
+        assertEquals("order.processed", sanitizer.sanitize("order processed"));
+        assertEquals("Order.processed.in.ms." + hash("Order {} processed in {} ms"),
+                sanitizer.sanitize("Order {} processed in {} ms"));
+        assertEquals("cache_miss.key." + hash("  cache_miss: key='{}'  "), sanitizer.sanitize("  cache_miss: key='{}'  "));
+        assertEquals("empty." + hash("{} -> {}"), sanitizer.sanitize("{} -> {}"));
+    }
+
+    @Test
+    public void testResultCachedPerTemplate() {
+        var sanitizer = new MetricNameSanitizer(".", 100);
+        String template = "Order {} processed";
+
+        assertSame(sanitizer.sanitize(template), sanitizer.sanitize(template));
+    }
+
+    @Test
+    public void testLossyNamesGetTemplateHash() {
+        var sanitizer = new MetricNameSanitizer("_", 100);
+
+        assertEquals("user_login", sanitizer.sanitize("user login"));
+        assertEquals("user_login_" + hash("user/login"), sanitizer.sanitize("user/login"));
+        // The join string already in the template would make the plain name ambiguous
+        assertEquals("user_login_" + hash("user_login"), sanitizer.sanitize("user_login"));
+    }
+
+    @Test
+    public void testNamesDoNotDependOnArrivalOrder() {
+        var forward = new MetricNameSanitizer(".", 100);
+        var backward = new MetricNameSanitizer(".", 100);
+        String[] templates = {"user login", "user/login", "user: login", "Order {} done"};
+
+        String[] first = new String[templates.length];
+        for (int i = 0; i < templates.length; i++) first[i] = forward.sanitize(templates[i]);
+        for (int i = templates.length - 1; i >= 0; i--) {
+            assertEquals(first[i], backward.sanitize(templates[i]));
+        }
+        assertEquals(templates.length, Set.of(first).size());
+    }
+
+    @Test
+    public void testLongNamesTruncatedWithHash() {
+        var sanitizer = new MetricNameSanitizer(".", 10);
+        String template = "a very long template that keeps going";
+
+        String name = sanitizer.sanitize(template);
+
+        assertEquals("a.very.lon." + hash(template), name);
+    }
+
+    private static String hash(String template) {
+        return String.format("%08x", template.hashCode());
+    }
+}
@@ -0,0 +1,47 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NumericFieldRouterTest {
+
+    @Test
+    public void testSettlesNumericAfterObservations() {
+        var router = new NumericFieldRouter();
+        for (int i = 0; i < NumericFieldRouter.OBSERVATIONS; i++) {
+            assertTrue(router.isNumeric("t", "elapsed_ms", String.valueOf(i), NumericParser.DECIMAL));
+        }
+        assertEquals(1, router.numericFields());
+
+        // Settled: later values are no longer inspected
+        assertTrue(router.isNumeric("t", "elapsed_ms", "n/a", NumericParser.DECIMAL));
+    }
+
+    @Test
+    public void testFirstTextValueSettlesText() {
+        var router = new NumericFieldRouter();
+        assertTrue(router.isNumeric("t", "status", 200, NumericParser.DECIMAL));
+        assertFalse(router.isNumeric("t", "status", "OK", NumericParser.DECIMAL));
+
+        assertFalse(router.isNumeric("t", "status", 200, NumericParser.DECIMAL));
+        assertEquals(0, router.numericFields());
+    }
+
+    @Test
+    public void testDecisionIsPerTemplate() {
+        var router = new NumericFieldRouter();
+        router.isNumeric("a", "code", "E1", NumericParser.DECIMAL);
+
+        assertFalse(router.isNumeric("a", "code", "42", NumericParser.DECIMAL));
+        assertTrue(router.isNumeric("b", "code", "42", NumericParser.DECIMAL));
+    }
+
+    @Test
+    public void testLooksNumeric() {
+        assertTrue(NumericFieldRouter.looksNumeric(1.5, NumericParser.DECIMAL));
+        assertTrue(NumericFieldRouter.looksNumeric("-3", NumericParser.DECIMAL));
+        assertFalse(NumericFieldRouter.looksNumeric("abc", NumericParser.DECIMAL));
+        assertFalse(NumericFieldRouter.looksNumeric(true, NumericParser.DECIMAL));
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NumericParserTest {
+
+    private static double parse(NumericParser parser, String text) {
+        var result = new NumericParser.Result();
+        assertNotEquals(NumericParser.NOT_NUMERIC, parser.parse(text, result), text);
+        return result.value;
+    }
+
+    @Test
+    public void testDecimals() {
+        assertEquals(42.0, parse(NumericParser.DECIMAL, "42"));
+        assertEquals(-0.5, parse(NumericParser.DECIMAL, "-0.5"));
+        assertEquals(0.25, parse(NumericParser.DECIMAL, ".25"));
+        assertEquals(1500.0, parse(NumericParser.DECIMAL, "1.5e3"));
+        assertEquals(0.1, parse(NumericParser.DECIMAL, "0.1"));
+        assertEquals(7.0, parse(NumericParser.DECIMAL, "7 "));
+        assertEquals(NumericParser.NUMBER, NumericParser.DECIMAL.parse("12", null));
+    }
+
+    @Test
+    public void testSlowPathMatchesParseDouble() {
+        for (String text : new String[]{"12345678901234567890", "3.141592653589793238", "1e300", "4.9e-324", "9007199254740993"}) {
+            assertEquals(Double.parseDouble(text), parse(NumericParser.DECIMAL, text), text);
+        }
+    }
+
+    @Test
+    public void testRejectsNonNumeric() {
+        for (String text : new String[]{"", " ", "-", ".", "abc", "1e", "1.2.3", " 5", "NaN", "12ms", "1,024"}) {
+            assertFalse(NumericParser.DECIMAL.isNumeric(text), text);
+        }
+        assertFalse(NumericParser.DECIMAL.isNumeric(null));
+    }
+
+    @Test
+    public void testUnitsScaledToBase() {
+        var parser = NumericParser.withUnits("ms", "B");
+
+        assertEquals(12.0, parse(parser, "12ms"));
+        assertEquals(1500.0, parse(parser, "1.5s"));
+        assertEquals(0.5, parse(parser, "500us"));
+        assertEquals(120000.0, parse(parser, "2 min"));
+        assertEquals(4096.0, parse(parser, "4KB"));
+        assertEquals(4096.0, parse(parser, "4kb"));
+        assertEquals(1048576.0, parse(parser, "1MiB"));
+        assertEquals(NumericParser.WITH_UNIT, parser.parse("12ms", null));
+        assertEquals(NumericParser.NUMBER, parser.parse("12", null));
+        assertFalse(parser.isNumeric("12 parsecs"));
+        assertFalse(parser.isNumeric("12MS"));
+    }
+
+    @Test
+    public void testThousandsSeparators() {
+        var parser = NumericParser.withUnits("ms", "B");
+
+        assertEquals(1024.0, parse(parser, "1,024"));
+        assertEquals(-12345678.5, parse(parser, "-12,345,678.5"));
+        assertEquals(1048576.0, parse(parser, "1,024 KB"));
+        assertFalse(parser.isNumeric("1,2"));
+        assertFalse(parser.isNumeric("1,0245"));
+        assertFalse(parser.isNumeric(",100"));
+        assertFalse(parser.isNumeric("1234,567"));
+    }
+
+    @Test
+    public void testBaseUnits() {
+        assertEquals(0.25, parse(NumericParser.withUnits("s", "KB"), "250ms"));
+        assertEquals(2.0, parse(NumericParser.withUnits("s", "KB"), "2048B"));
+        assertThrows(IllegalArgumentException.class, () -> NumericParser.withUnits("fortnight", "B"));
+    }
+}
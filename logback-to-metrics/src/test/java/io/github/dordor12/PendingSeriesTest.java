@@ -0,0 +1,78 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PendingSeriesTest {
+
+    @Test
+    public void testCounterSlotReplaysSum() {
+        var pending = new PendingSeries(false);
+        assertTrue(pending.record(1.0));
+        assertTrue(pending.record(1.0));
+        assertTrue(pending.record(1.0));
+
+        List<Double> replayed = new ArrayList<>();
+        pending.complete(replayed::add);
+
+        assertEquals(List.of(3.0), replayed);
+    }
+
+    @Test
+    public void testHistogramSlotReplaysEveryValue() {
+        var pending = new PendingSeries(true);
+        pending.record(10.0);
+        pending.record(20.0);
+
+        List<Double> replayed = new ArrayList<>();
+        pending.complete(replayed::add);
+
+        assertEquals(List.of(10.0, 20.0), replayed);
+    }
+
+    @Test
+    public void testRecordAfterCompleteIsRejected() {
+        var pending = new PendingSeries(false);
+        pending.complete(v -> fail("nothing recorded"));
+
+        assertFalse(pending.record(1.0));
+    }
+
+    @Test
+    public void testHistogramOverflowKeepsCountSumAndMax() {
+        var pending = new PendingSeries(true);
+        for (int i = 0; i < PendingSeries.MAX_BUFFERED_VALUES; i++) {
+            pending.record(1.0);
+        }
+        pending.record(2.0);
+        pending.record(10.0);
+        pending.record(3.0);
+
+        var summary = new SimpleMeterRegistry().summary("rows");
+        assertEquals(0, pending.complete(summary::record));
+
+        assertEquals(PendingSeries.MAX_BUFFERED_VALUES + 3, summary.count());
+        assertEquals(PendingSeries.MAX_BUFFERED_VALUES + 15.0, summary.totalAmount(), 1e-9);
+        assertEquals(10.0, summary.max());
+    }
+
+    @Test
+    public void testDiscardedSlotReportsLostValues() {
+        var histogram = new PendingSeries(true);
+        for (int i = 0; i < PendingSeries.MAX_BUFFERED_VALUES + 2; i++) {
+            histogram.record(1.0);
+        }
+        var counter = new PendingSeries(false);
+        counter.record(1.0);
+        counter.record(1.0);
+
+        assertEquals(PendingSeries.MAX_BUFFERED_VALUES + 2, histogram.complete(null));
+        assertEquals(2, counter.complete(null));
+        assertEquals(0, histogram.complete(null));
+    }
+}
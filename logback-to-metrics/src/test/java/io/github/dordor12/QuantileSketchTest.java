@@ -0,0 +1,72 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuantileSketchTest {
+
+    @Test
+    public void testQuantilesWithinRelativeAccuracy() {
+        var sketch = new QuantileSketch();
+        for (int i = 1; i <= 10_000; i++) {
+            sketch.record(i);
+        }
+
+        assertEquals(10_000, sketch.count());
+        assertEquals(50_005_000.0, sketch.sum());
+        assertEquals(10_000.0, sketch.max());
+        assertEquals(5_000.0, sketch.quantile(0.5), 5_000.0 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(9_900.0, sketch.quantile(0.99), 9_900.0 * QuantileSketch.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    public void testEmptySketch() {
+        var sketch = new QuantileSketch();
+
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+        assertEquals(0.0, sketch.max());
+    }
+
+    @Test
+    public void testZeroAndNegativeValuesUseZeroBucket() {
+        var sketch = new QuantileSketch();
+        sketch.record(0.0);
+        sketch.record(-5.0);
+        sketch.record(10.0);
+
+        assertEquals(0.0, sketch.quantile(0.0));
+        assertEquals(10.0, sketch.quantile(1.0), 10.0 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(5.0, sketch.sum());
+    }
+
+    @Test
+    public void testWideRangeCollapsesLowestBuckets() {
+        var sketch = new QuantileSketch();
+        sketch.record(1e-9);
+        for (int i = 0; i < 99; i++) {
+            sketch.record(1e12);
+        }
+
+        // High quantiles keep their accuracy; the collapsed low value no longer does
+        assertEquals(1e12, sketch.quantile(0.5), 1e12 * QuantileSketch.RELATIVE_ACCURACY);
+        assertTrue(sketch.quantile(0.0) > 1e-9);
+        assertEquals(100, sketch.count());
+    }
+
+    @Test
+    public void testMerge() {
+        var low = new QuantileSketch();
+        var high = new QuantileSketch();
+        for (int i = 1; i <= 500; i++) {
+            low.record(i);
+            high.record(500 + i);
+        }
+
+        low.merge(high);
+
+        assertEquals(1_000, low.count());
+        assertEquals(1_000.0, low.max());
+        assertEquals(500.0, low.quantile(0.5), 500.0 * QuantileSketch.RELATIVE_ACCURACY);
+    }
+}
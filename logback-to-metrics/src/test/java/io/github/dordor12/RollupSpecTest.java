@@ -0,0 +1,61 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RollupSpecTest {
+
+    private static RollupSpec rollup(String name, String keep) {
+        var rollup = new Rollup();
+        rollup.setName(name);
+        rollup.setKeep(keep);
+        return RollupSpec.compile(rollup);
+    }
+
+    private static EventFields event(String level, String userId) {
+        EventFields fields = EventFields.begin();
+        fields.addTag("user_id", userId);
+        fields.addTag("level", level);
+        return fields;
+    }
+
+    @Test
+    public void testDroppedTagsShareHash() {
+        var byLevel = rollup(null, "level");
+
+        int first = byLevel.hash(event("INFO", "u1"));
+        int second = byLevel.hash(event("INFO", "u2"));
+        int error = byLevel.hash(event("ERROR", "u1"));
+
+        assertEquals(first, second);
+        assertNotEquals(first, error);
+    }
+
+    @Test
+    public void testHashDiffersFromDetailedAndOtherRollups() {
+        EventFields fields = event("INFO", "u1");
+        int detailed = fields.tagHash();
+
+        assertNotEquals(detailed, rollup(null, "level,user_id").hash(fields));
+        assertNotEquals(rollup(null, null).hash(fields), rollup(null, "level").hash(fields));
+    }
+
+    @Test
+    public void testTagsKeepOnlyChosenKeys() {
+        assertEquals(List.of(Tag.of("level", "WARN")), rollup(null, " level ").tags(event("WARN", "u1")));
+        assertEquals(List.of(), rollup(null, "").tags(event("WARN", "u1")));
+    }
+
+    @Test
+    public void testNames() {
+        assertEquals("by_level", rollup(null, "level").name());
+        assertEquals("by_level_logger_name", rollup(null, "level, logger_name").name());
+        assertEquals("total", rollup(null, null).name());
+        assertEquals("per_level", rollup("per_level", "level").name());
+        assertThrows(IllegalArgumentException.class, () -> rollup("by.level", "level"));
+    }
+}
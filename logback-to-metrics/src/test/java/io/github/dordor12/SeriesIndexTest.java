@@ -0,0 +1,83 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeriesIndexTest {
+
+    @Test
+    public void testPutAndGet() {
+        var index = new SeriesIndex();
+        Object handle = new Object();
+
+        int id = index.putIfAbsent("template", 42, handle);
+
+        assertEquals(id, index.find("template", 42));
+        assertSame(handle, index.get("template", 42));
+        assertSame(handle, index.handle(id));
+        assertNull(index.get("template", 43));
+        assertNull(index.get("other", 42));
+    }
+
+    @Test
+    public void testTemplateMatchedByContent() {
+        var index = new SeriesIndex();
+        Object handle = new Object();
+        index.putIfAbsent("same template", 1, handle);
+
+        assertSame(handle, index.get(new String("same template"), 1));
+    }
+
+    @Test
+    public void testPutIfAbsentKeepsExistingEntry() {
+        var index = new SeriesIndex();
+        Object first = new Object();
+
+        int id = index.putIfAbsent("template", 1, first);
+
+        assertEquals(id, index.putIfAbsent("template", 1, new Object()));
+        assertSame(first, index.get("template", 1));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testRemoveRequiresExpectedHandle() {
+        var index = new SeriesIndex();
+        Object handle = new Object();
+        index.putIfAbsent("template", 1, handle);
+
+        assertFalse(index.remove("template", 1, new Object()));
+        assertTrue(index.remove("template", 1, handle));
+        assertNull(index.get("template", 1));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testGrowsAndAssignsDenseIds() {
+        var index = new SeriesIndex();
+        int entries = 20_000;
+        for (int i = 0; i < entries; i++) {
+            assertEquals(i, index.putIfAbsent("template " + (i % 100), i, i));
+        }
+        for (int i = 0; i < entries; i++) {
+            assertEquals(i, index.get("template " + (i % 100), i));
+        }
+        assertEquals(entries, index.size());
+        assertTrue(index.maxProbeLength() >= 1);
+        assertTrue(index.meanProbeLength() >= 1.0);
+        assertTrue(index.footprintBytes() > 0);
+    }
+
+    @Test
+    public void testTombstonesAreReclaimed() {
+        var index = new SeriesIndex();
+        for (int i = 0; i < 10_000; i++) {
+            Object handle = new Object();
+            index.putIfAbsent("churn", i, handle);
+            assertTrue(index.remove("churn", i, handle));
+        }
+        assertEquals(0, index.size());
+        assertTrue(index.footprintBytes() < 100_000, "table should not grow with removed entries");
+    }
+}
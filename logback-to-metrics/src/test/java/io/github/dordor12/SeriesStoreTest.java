@@ -0,0 +1,45 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeriesStoreTest {
+
+    @Test
+    public void testHeapSlotsAcrossChunks() {
+        assertSlotsAcrossChunks(new SeriesStore(false));
+    }
+
+    @Test
+    public void testOffHeapSlotsAcrossChunks() {
+        assertSlotsAcrossChunks(new SeriesStore(true));
+    }
+
+    @Test
+    public void testSlotCounterReadsItsSlot() {
+        var store = new SeriesStore(false);
+        var first = new SlotCounter(store, store.allocate());
+        var second = new SlotCounter(store, store.allocate());
+
+        first.increment();
+        first.increment(2.0);
+        second.increment();
+
+        assertEquals(3.0, first.count());
+        assertEquals(1.0, second.count());
+    }
+
+    private void assertSlotsAcrossChunks(SeriesStore store) {
+        int slots = 10_000;
+        for (int i = 0; i < slots; i++) {
+            assertEquals(i, store.allocate());
+            store.add(i, i);
+        }
+        for (int i = 0; i < slots; i++) {
+            assertEquals(i, store.get(i));
+        }
+        assertEquals(slots, store.size());
+        assertTrue(store.footprintBytes() >= (long) slots * SeriesStore.SLOT_BYTES);
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateMinerTest {
+
+    @Test
+    public void testMasksVariableTokens() {
+        assertEquals("{}", TemplateMiner.mask("42"));
+        assertEquals("{}", TemplateMiner.mask("3f2a9c1e-0b7d-4e2a-9f1c-5d6e7f8a9b0c"));
+        assertEquals("{}", TemplateMiner.mask("deadbeefcafe"));
+        assertEquals("{}", TemplateMiner.mask("10.0.0.1"));
+        assertEquals("logged", TemplateMiner.mask("logged"));
+        assertEquals("accepted", TemplateMiner.mask("accepted"));
+    }
+
+    @Test
+    public void testNumbersMaskedWithoutMerging() {
+        var miner = new TemplateMiner(100);
+
+        assertEquals("Processed {} records in {} ms", miner.template("Processed 17 records in 250 ms"));
+        assertEquals("Processed {} records in {} ms", miner.template("Processed 3 records in 12 ms"));
+        assertEquals(1, miner.size());
+    }
+
+    @Test
+    public void testSimilarMessagesShareStableKey() {
+        var miner = new TemplateMiner(100);
+        String first = miner.template("User alice logged in");
+        String second = miner.template("User bob logged in");
+        String third = miner.template("User carol logged in");
+
+        // The key is fixed when the cluster is created, so the series never moves
+        assertEquals("User alice logged in", first);
+        assertSame(first, second);
+        assertSame(first, third);
+        assertSame(first, miner.template("User alice logged in"));
+        assertEquals(1, miner.size());
+    }
+
+    @Test
+    public void testDissimilarMessagesGetOwnTemplates() {
+        var miner = new TemplateMiner(100);
+
+        miner.template("Connection opened to primary");
+        miner.template("Shutdown hook invoked now");
+
+        assertEquals(2, miner.size());
+    }
+
+    @Test
+    public void testTemplateLimitFallsBackToMaskedMessage() {
+        var miner = new TemplateMiner(1);
+        miner.template("Cache warmed");
+
+        assertEquals("Index rebuilt in {} ms", miner.template("Index rebuilt in 40 ms"));
+        assertEquals(1, miner.size());
+    }
+
+    @Test
+    public void testFallbackIsCachedOnceMinerIsFull() {
+        var miner = new TemplateMiner(1);
+        miner.template("Cache warmed");
+
+        String first = miner.template("Index rebuilt in 40 ms");
+        // Served from the cache: same instance, no re-tokenizing
+        assertSame(first, miner.template("Index rebuilt in 40 ms"));
+        // A fallback never generalizes into a wildcard
+        assertEquals("Index flushed in {} ms", miner.template("Index flushed in 40 ms"));
+        assertEquals("Index rebuilt in {} ms", miner.template("Index rebuilt in 40 ms"));
+        assertEquals(1, miner.size());
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.dordor12;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredSummaryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void testPromotionIsHandedToExecutor() {
+        List<Runnable> queued = new ArrayList<>();
+        var summary = TieredSummary.register("rows", Tags.empty(), 3,
+                () -> DistributionSummary.builder("rows").register(registry), queued::add, registry);
+        for (int i = 0; i < 4; i++) {
+            summary.record(1.0);
+        }
+
+        assertEquals(1, queued.size());
+        assertFalse(summary.isPromoted());
+        assertEquals(4, summary.count());
+
+        queued.get(0).run();
+        summary.record(2.0);
+
+        assertTrue(summary.isPromoted());
+        assertEquals(1, registry.get("rows").summary().count());
+    }
+
+    @Test
+    public void testValuesRecordedDuringSwapReachFullSummary() {
+        List<Runnable> queued = new ArrayList<>();
+        var handle = new AtomicReference<TieredSummary>();
+        var summary = TieredSummary.register("rows", Tags.empty(), 2, () -> {
+            // Another thread logging after the tier-one meter is gone
+            handle.get().record(9.0);
+            return DistributionSummary.builder("rows").register(registry);
+        }, queued::add, registry);
+        handle.set(summary);
+        summary.record(1.0);
+        summary.record(1.0);
+
+        queued.get(0).run();
+
+        DistributionSummary full = registry.get("rows").summary();
+        assertEquals(1, full.count());
+        assertEquals(9.0, full.totalAmount());
+        assertEquals(1, registry.find("rows").meters().size());
+    }
+
+    @Test
+    public void testFailedPromotionKeepsTierOne() {
+        var fail = new AtomicBoolean(true);
+        var summary = TieredSummary.register("rows", Tags.empty(), 2, () -> {
+            if (fail.get()) throw new IllegalStateException("registry closed");
+            return DistributionSummary.builder("rows").register(registry);
+        }, promotion -> {
+            try {
+                promotion.run();
+            } catch (IllegalStateException e) {
+                // reported by the appender
+            }
+        }, registry);
+
+        summary.record(5.0);
+        summary.record(7.0);
+
+        assertFalse(summary.isPromoted());
+        assertEquals(2, summary.count());
+        assertNull(registry.find("rows").summary());
+        assertEquals(12.0, summary.totalAmount());
+
+        // Tier one keeps counting and the next hot window retries
+        fail.set(false);
+        summary.record(1.0);
+        summary.record(1.0);
+
+        assertTrue(summary.isPromoted());
+        assertNotNull(registry.get("rows").summary());
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.dordor12;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValueNormalizerTest {
+
+    private static TagNormalizer step(String type) {
+        var normalizer = new TagNormalizer();
+        normalizer.setKey("k");
+        normalizer.setType(type);
+        return normalizer;
+    }
+
+    @Test
+    public void testStatusClass() {
+        var normalizer = ValueNormalizer.of(ValueNormalizer.compile(step("status_class")));
+
+        assertEquals("2xx", normalizer.normalize(200));
+        assertEquals("4xx", normalizer.normalize("404"));
+        assertEquals("OK", normalizer.normalize("OK"));
+        assertEquals("999", normalizer.normalize("999"));
+    }
+
+    @Test
+    public void testPathIds() {
+        assertEquals("/users/{id}/orders/{id}", ValueNormalizer.pathIds("/users/123/orders/9"));
+        assertEquals("/files/{id}/", ValueNormalizer.pathIds("/files/3f2a9c1be07d4e55/"));
+        assertEquals("/health", ValueNormalizer.pathIds("/health"));
+    }
+
+    @Test
+    public void testBuckets() {
+        var config = step("buckets");
+        config.setBuckets("0, 10, 100");
+        var normalizer = ValueNormalizer.of(ValueNormalizer.compile(config));
+
+        assertEquals("<0", normalizer.normalize(-1));
+        assertEquals("0-10", normalizer.normalize(0));
+        assertEquals("10-100", normalizer.normalize("42.5"));
+        assertEquals("100+", normalizer.normalize(100L));
+        assertEquals("n/a", normalizer.normalize("n/a"));
+    }
+
+    @Test
+    public void testChainRunsInOrder() {
+        var replace = step("replace");
+        replace.setPattern("Exception: .*");
+        replace.setReplacement("Exception");
+        var truncate = step("truncate");
+        truncate.setMaxLength(12);
+
+        var normalizer = ValueNormalizer.of(ValueNormalizer.compile(replace)).then(ValueNormalizer.compile(truncate));
+
+        assertEquals("IOException", normalizer.normalize("IOException: connection reset"));
+        assertEquals("IllegalState", normalizer.normalize("IllegalStateException: closed"));
+    }
+
+    @Test
+    public void testResultIsMemoized() {
+        var normalizer = ValueNormalizer.of(ValueNormalizer::pathIds);
+        String raw = "/users/1";
+
+        assertSame(normalizer.normalize(raw), normalizer.normalize(raw));
+    }
+
+    @Test
+    public void testInvalidSteps() {
+        assertThrows(IllegalArgumentException.class, () -> ValueNormalizer.compile(step("unknown")));
+        assertThrows(IllegalArgumentException.class, () -> ValueNormalizer.compile(step("truncate")));
+        var buckets = step("buckets");
+        buckets.setBuckets("10,1");
+        assertThrows(IllegalArgumentException.class, () -> ValueNormalizer.compile(buckets));
+    }
+}